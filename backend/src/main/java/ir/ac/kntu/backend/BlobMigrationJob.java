@@ -0,0 +1,113 @@
+package ir.ac.kntu.backend;
+
+import ir.ac.kntu.backend.iservice.IBlobStore;
+import ir.ac.kntu.backend.repository.CommunityImageRepository;
+import ir.ac.kntu.backend.repository.PostAttachmentRepository;
+import ir.ac.kntu.backend.repository.ProfilePhotoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Moves the legacy inline LOB payloads out of the database into the blob store, a small batch per run.
+ * Each row is copied and cleared in its own transaction so a failure leaves the row readable in its old form.
+ * Runs seek past the ids handled by the previous run, so a row that keeps failing does not hold back the rows
+ * behind it; it is retried once the scan wraps around to the start.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BlobMigrationJob {
+
+    private final PostAttachmentRepository attachmentRepository;
+    private final ProfilePhotoRepository profilePhotoRepository;
+    private final CommunityImageRepository communityImageRepository;
+    private final IBlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${blob-store.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${blob-store.migration.batch-size:20}")
+    private int batchSize;
+
+    // last id handled per table; only the scheduler thread touches these
+    private long attachmentsAfter;
+    private long profilePhotosAfter;
+    private long communityImagesAfter;
+
+    @Scheduled(initialDelayString = "${blob-store.migration.interval-ms:60000}", fixedDelayString = "${blob-store.migration.interval-ms:60000}")
+    public void migrateBatch() {
+        if (!enabled) return;
+
+        List<Long> attachments = attachmentRepository.findIdsWithInlineData(attachmentsAfter, PageRequest.of(0, batchSize));
+        attachmentsAfter = next(attachments);
+        List<Long> profilePhotos = profilePhotoRepository.findIdsWithInlineData(profilePhotosAfter, PageRequest.of(0, batchSize));
+        profilePhotosAfter = next(profilePhotos);
+        List<Long> communityImages = communityImageRepository.findIdsWithInlineData(communityImagesAfter, PageRequest.of(0, batchSize));
+        communityImagesAfter = next(communityImages);
+
+        int moved = migrate(attachments, this::migrateAttachment)
+                + migrate(profilePhotos, this::migrateProfilePhoto)
+                + migrate(communityImages, this::migrateCommunityImage);
+
+        if (moved > 0) {
+            log.info("Moved {} inline payloads to the blob store", moved);
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    // a short batch means the end of the table was reached; the next run starts over
+    private long next(List<Long> ids) {
+        return ids.size() < batchSize ? 0L : ids.get(ids.size() - 1);
+    }
+
+    private int migrate(List<Long> ids, LongConsumer migrateOne) {
+        int moved = 0;
+        for (Long id : ids) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> migrateOne.accept(id));
+                moved++;
+            } catch (RuntimeException ex) {
+                log.warn("Blob migration of row {} failed: {}", id, ex.getMessage());
+            }
+        }
+        return moved;
+    }
+
+    // targeted updates instead of dirty checking: a full-row flush would write back stale thumbnail columns
+    private void migrateAttachment(long id) {
+        byte[] data = attachmentRepository.findDataById(id);
+        if (data != null) attachmentRepository.moveDataToBlob(id, put(data));
+        byte[] thumbnail = attachmentRepository.findThumbnailDataById(id);
+        if (thumbnail != null) attachmentRepository.moveThumbnailToBlob(id, put(thumbnail));
+    }
+
+    private void migrateProfilePhoto(long id) {
+        byte[] data = profilePhotoRepository.findDataById(id);
+        if (data != null) profilePhotoRepository.moveDataToBlob(id, put(data));
+    }
+
+    private void migrateCommunityImage(long id) {
+        byte[] data = communityImageRepository.findDataById(id);
+        if (data != null) communityImageRepository.moveDataToBlob(id, put(data));
+    }
+
+    private String put(byte[] data) {
+        try {
+            return blobStore.put(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ir.ac.kntu.backend;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fills comments.c_path / n_depth / f_root_comment_id for rows written before the materialized path existed.
+ * Works through id ranges; a child always has a larger id than its parent, so each pass indexes at least one more
+ * level and passes repeat until one changes nothing. Thread reads use the path only once this node has seen the
+ * table fully indexed; new comments are indexed on insert, so that never reverts.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CommentPathBackfillJob {
+
+    private static final String INDEX_TOP_LEVEL =
+            "UPDATE comments SET c_path = '', n_depth = 0 " +
+            "WHERE parent_comment_id IS NULL AND c_path IS NULL AND id BETWEEN ? AND ?";
+
+    // same encoding as Comment.pathSegment: the parent's id in base 36, zero-padded to 8 characters
+    private static final String INDEX_REPLIES =
+            "UPDATE comments c JOIN comments p ON p.id = c.parent_comment_id " +
+            "SET c.c_path = CONCAT(p.c_path, LPAD(LOWER(CONV(p.id, 10, 36)), 8, '0')), " +
+            "c.n_depth = p.n_depth + 1, c.f_root_comment_id = COALESCE(p.f_root_comment_id, p.id) " +
+            "WHERE c.c_path IS NULL AND p.c_path IS NOT NULL AND c.id BETWEEN ? AND ?";
+
+    private static final int MAX_PASSES = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean complete;
+
+    @Value("${comments.path-backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${comments.path-backfill.batch-size:5000}")
+    private int batchSize;
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Scheduled(initialDelayString = "${comments.path-backfill.initial-delay-ms:10000}",
+            fixedDelayString = "${comments.path-backfill.interval-ms:300000}")
+    public void backfill() {
+        if (complete || !enabled) return;
+
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM comments", Long.class);
+        int indexed = 0;
+        if (maxId != null) {
+            indexed += run(INDEX_TOP_LEVEL, maxId);
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                int changed = run(INDEX_REPLIES, maxId);
+                if (changed == 0) break;
+                indexed += changed;
+            }
+        }
+
+        Boolean pending = jdbcTemplate.queryForObject("SELECT EXISTS(SELECT 1 FROM comments WHERE c_path IS NULL)", Boolean.class);
+        complete = !Boolean.TRUE.equals(pending);
+
+        if (indexed > 0) {
+            log.info("Comment path backfill indexed {} comments{}", indexed, complete ? ", all comments indexed" : "");
+        } else if (!complete) {
+            // replies whose parent is gone or deeper than MAX_PASSES levels
+            log.warn("Comment path backfill made no progress; thread reads keep walking the tree level by level");
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private int run(String sql, long maxId) {
+        int changed = 0;
+        for (long from = 1; from <= maxId; from += batchSize) {
+            long to = from + batchSize - 1;
+            try {
+                changed += jdbcTemplate.update(sql, from, to);
+            } catch (RuntimeException ex) {
+                log.error("Comment path backfill of ids {}..{} failed: {}", from, to, ex.getMessage());
+            }
+        }
+        return changed;
+    }
+}
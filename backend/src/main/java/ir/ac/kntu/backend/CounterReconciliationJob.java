@@ -0,0 +1,85 @@
+package ir.ac.kntu.backend;
+
+import ir.ac.kntu.backend.service.CommentScores;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Recomputes the denormalized posts.n_comment_count and communities.n_member_count from their source tables and
+ * repairs rows that drifted (failed relative updates, manual data fixes). Comments written before the per-comment
+ * vote tallies existed get them, and their ranking scores, filled in from the votes table. Works through id ranges
+ * so each statement only locks a slice of the table.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CounterReconciliationJob {
+
+    private static final String FIX_COMMENT_COUNTS =
+            "UPDATE posts p LEFT JOIN (SELECT post_id, COUNT(*) AS cnt FROM comments WHERE b_deleted = 0 " +
+            "AND post_id BETWEEN ? AND ? GROUP BY post_id) c ON c.post_id = p.id " +
+            "SET p.n_comment_count = COALESCE(c.cnt, 0) " +
+            "WHERE p.id BETWEEN ? AND ? AND p.n_comment_count <> COALESCE(c.cnt, 0)";
+
+    private static final String FIX_MEMBER_COUNTS =
+            "UPDATE communities m LEFT JOIN (SELECT community_id, COUNT(*) AS cnt FROM t_user_joined_communities " +
+            "WHERE community_id BETWEEN ? AND ? GROUP BY community_id) j ON j.community_id = m.id " +
+            "SET m.n_member_count = COALESCE(j.cnt, 0) " +
+            "WHERE m.id BETWEEN ? AND ? AND m.n_member_count <> COALESCE(j.cnt, 0)";
+
+    // only touches rows whose tallies were never set; from then on the vote flush keeps them current.
+    // a multi-table UPDATE does not promise assignment order, so the scores are computed from the joined sums
+    private static final String FILL_COMMENT_TALLIES =
+            "UPDATE comments c LEFT JOIN (SELECT votable_id, SUM(value = 1) AS up, SUM(value = -1) AS down FROM votes " +
+            "WHERE votable_type = 'COMMENT' AND votable_id BETWEEN ? AND ? GROUP BY votable_id) v ON v.votable_id = c.id " +
+            "SET c.n_upvotes = COALESCE(v.up, 0), c.n_downvotes = COALESCE(v.down, 0), " +
+            CommentScores.assignments("COALESCE(v.up, 0)", "COALESCE(v.down, 0)") + " " +
+            "WHERE c.id BETWEEN ? AND ? AND c.n_upvotes IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${counters.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${counters.reconciliation.batch-size:1000}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${counters.reconciliation.initial-delay-ms:60000}",
+            fixedDelayString = "${counters.reconciliation.interval-ms:3600000}")
+    public void reconcile() {
+        if (!enabled) return;
+
+        int posts = reconcile("posts", FIX_COMMENT_COUNTS);
+        int communities = reconcile("communities", FIX_MEMBER_COUNTS);
+        int comments = reconcile("comments", FILL_COMMENT_TALLIES);
+
+        if (posts > 0 || communities > 0) {
+            log.warn("Counter reconciliation repaired {} post comment counts and {} community member counts", posts, communities);
+        }
+        if (comments > 0) {
+            log.info("Counter reconciliation filled vote tallies of {} comments", comments);
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private int reconcile(String table, String sql) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        if (maxId == null) return 0;
+
+        int repaired = 0;
+        for (long from = 1; from <= maxId; from += batchSize) {
+            long to = from + batchSize - 1;
+            try {
+                repaired += jdbcTemplate.update(sql, from, to, from, to);
+            } catch (RuntimeException ex) {
+                log.error("Counter reconciliation of {} ids {}..{} failed: {}", table, from, to, ex.getMessage());
+            }
+        }
+        return repaired;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.io.Serializable;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,13 +23,14 @@ public abstract class CommentDTO {
     @Setter
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class Summary {
+    public static class Summary implements Serializable {
         private Long id;
         private String text;
         private LocalDateTime createdAt;
         private UserDTO.MinimalView author;
         private Long parentId;     // null if top-level
         private long votes;
+        private Integer myVote;    // the caller's vote, only when asked for (see IMyVoteService)
         private Instant lastModifiedDate;
         private Integer version;
     }
@@ -5,12 +5,13 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 
 @Getter
 @Setter
 @NoArgsConstructor
-public class CommunityDTO {
+public class CommunityDTO implements Serializable {
 
     private Long id;
     private String name;
@@ -46,7 +47,7 @@ public class CommunityDTO {
     @Getter
     @Setter
     @NoArgsConstructor
-    public static class MinimalView {
+    public static class MinimalView implements Serializable {
 
         private Long id;
         private String name;
@@ -1,12 +1,14 @@
 package ir.ac.kntu.backend.DTO;
 
 import ir.ac.kntu.backend.model.ThumbnailStatus;
+import org.springframework.core.io.Resource;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.io.Serializable;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,7 +16,7 @@ import java.util.List;
 @Getter
 @Setter
 @NoArgsConstructor
-public class PostDTO {
+public class PostDTO implements Serializable {
 
     private Long id;
     private String title;
@@ -25,6 +27,7 @@ public class PostDTO {
     private long commentCount;
     private List<AttachmentDTO> attachments; // small meta only
     private long votes;
+    private Integer myVote;     // the caller's vote, only when asked for (see IMyVoteService)
     private Instant lastModifiedDate;
     private Integer version;
 
@@ -33,7 +36,7 @@ public class PostDTO {
     @Getter
     @Setter
     @NoArgsConstructor
-    public static class AttachmentDTO {
+    public static class AttachmentDTO implements Serializable {
 
         private Long id;
         private String filename;
@@ -46,6 +49,29 @@ public class PostDTO {
 
     }
 
+    // attachment meta and its bytes, resolved by a single lookup for downloads
+    @Getter
+    @AllArgsConstructor
+    public static class AttachmentContent {
+
+        private AttachmentDTO meta;
+        private Resource resource;
+        private String etag;        // content hash, usable as a strong validator
+
+    }
+
+    // thumbnail bytes for one rendition, or the placeholder while generation is pending
+    @Getter
+    @AllArgsConstructor
+    public static class ThumbnailContent {
+
+        private Resource resource;
+        private String contentType;
+        private boolean placeholder;
+        private String etag;
+
+    }
+
     @Getter
     @Setter
     @NoArgsConstructor
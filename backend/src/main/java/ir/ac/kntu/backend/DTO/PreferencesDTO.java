@@ -2,11 +2,13 @@ package ir.ac.kntu.backend.DTO;
 
 import lombok.*;
 
+import java.io.Serializable;
+
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-public class PreferencesDTO {
+public class PreferencesDTO implements Serializable {
 
     private Long id;
     private boolean emailNotifications;
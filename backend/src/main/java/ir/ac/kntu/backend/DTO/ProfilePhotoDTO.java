@@ -2,11 +2,13 @@ package ir.ac.kntu.backend.DTO;
 
 import lombok.*;
 
+import java.io.Serializable;
+
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-public class ProfilePhotoDTO {
+public class ProfilePhotoDTO implements Serializable {
 
     private Long id;
     private long size;
@@ -34,6 +34,9 @@ public abstract class SearchDTO {
 
 		@Valid
 		private List<SortExpression> sorts;
+
+		// nextCursor of the previous page; when given, startIndex is ignored
+		private String cursor;
 	}
 
 	@Getter
@@ -41,5 +44,8 @@ public abstract class SearchDTO {
 	public static class SearchRs<D> {
 		private final List<D> result;
 		private final Long totalCount;
+
+		@Setter
+		private String nextCursor;
 	}
 }
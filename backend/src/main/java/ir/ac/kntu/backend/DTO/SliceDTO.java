@@ -0,0 +1,18 @@
+package ir.ac.kntu.backend.DTO;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page without a total: whether another page exists is known from fetching one row more than was asked for.
+ * Keyset feeds also return the cursor to pass back for the next page.
+ */
+@Getter
+@RequiredArgsConstructor
+public class SliceDTO<D> {
+    private final List<D> content;
+    private final boolean hasNext;
+    private final String nextCursor;
+}
@@ -0,0 +1,46 @@
+package ir.ac.kntu.backend.DTO;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public abstract class UploadDTO {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class SessionCreateRq {
+
+        @NotNull
+        private Long postId;
+
+        @NotBlank
+        private String filename;
+
+        private String contentType;     // as declared by the client, the stored type is sniffed on completion
+
+        @NotNull
+        private Long size;              // total bytes that will be sent
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SessionRs {
+
+        private String id;
+        private Long postId;
+        private long offset;            // bytes received so far, the next chunk starts here
+        private long size;
+        private Instant expiresAt;
+    }
+}
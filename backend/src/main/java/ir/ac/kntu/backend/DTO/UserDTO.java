@@ -7,6 +7,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -76,7 +77,7 @@ public abstract class UserDTO {
     @Getter
     @Setter
     @NoArgsConstructor
-    public static class UserViewDTO {
+    public static class UserViewDTO implements Serializable {
 
         private String username;
         private String name;
@@ -96,7 +97,7 @@ public abstract class UserDTO {
     @Getter
     @Setter
     @NoArgsConstructor
-    public static class UserProfileRs {
+    public static class UserProfileRs implements Serializable {
 
         private Long id;
         private String username;
@@ -172,7 +173,7 @@ public abstract class UserDTO {
     @Getter
     @Setter
     @NoArgsConstructor
-    public static class MinimalView {
+    public static class MinimalView implements Serializable {
         private Long id;
         private String username;
         private ProfilePhotoDTO profilePhoto;
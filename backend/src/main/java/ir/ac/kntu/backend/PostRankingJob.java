@@ -0,0 +1,44 @@
+package ir.ac.kntu.backend;
+
+import ir.ac.kntu.backend.iservice.IPostRankingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rebuilds the hot feeds from the database on startup and then periodically. Incremental updates keep the scores
+ * current between runs; the rebuild repairs whatever they missed (Redis unavailable, lost events) and retires
+ * posts that fell out of the ranking window.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PostRankingJob {
+
+    private final IPostRankingService rankingService;
+
+    @Value("${ranking.hot.rebuild-enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${ranking.hot.rebuild-interval-ms:900000}", fixedDelayString = "${ranking.hot.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        if (!enabled) return;
+
+        long started = System.currentTimeMillis();
+        try {
+            int ranked = rankingService.rebuild();
+            log.info("Rebuilt hot feeds from {} posts in {} ms", ranked, System.currentTimeMillis() - started);
+        } catch (RuntimeException ex) {
+            log.error("Hot feed rebuild failed: {}", ex.getMessage());
+        }
+    }
+}
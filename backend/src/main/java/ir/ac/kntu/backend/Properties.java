@@ -19,9 +19,15 @@ public class Properties {
     public static class Security {
         private ETokenMedia tokenMedia = ETokenMedia.header;
         private String tokenKey = "Authorization";
+        private ETokenMode tokenMode = ETokenMode.session;
     }
 
     public enum ETokenMedia {
         header, cookie
     }
+
+    // session: the client holds an opaque id of a JWT kept in Redis; stateless: the client holds the signed JWT
+    public enum ETokenMode {
+        session, stateless
+    }
 }
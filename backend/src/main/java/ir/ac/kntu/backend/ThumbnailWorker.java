@@ -1,35 +1,164 @@
 package ir.ac.kntu.backend;
 
-import ir.ac.kntu.backend.error.PostAttachmentError;
-import ir.ac.kntu.backend.iservice.IPostService;
-import ir.ac.kntu.backend.model.PostAttachment;
-import ir.ac.kntu.backend.model.ThumbnailStatus;
-import ir.ac.kntu.backend.repository.PostAttachmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ir.ac.kntu.backend.iservice.IThumbnailJobService;
+import ir.ac.kntu.backend.model.ThumbnailJob;
 import ir.ac.kntu.backend.service.ThumbnailService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Consumes the thumbnail_jobs table. Each poll leases at most as many jobs as there are free slots, so the
+ * executor never sees more work than it can run and nothing is rejected; jobs that are not leased simply wait
+ * in the table. A restart loses nothing: leases left behind by a stopped worker are released once they expire.
+ * The worker id is the host name plus a per-process UUID, so two processes on one host (a rolling restart, or
+ * containers sharing a host name) never take each other's leases for their own.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ThumbnailWorker {
 
+    private static final int ORPHAN_BATCH = 500;
+
     private final ThumbnailService thumbnailService;
+    private final IThumbnailJobService jobService;
+    private final Executor executor;
+    private final Semaphore slots;
+    private final int concurrency;
+    private final String workerId;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Timer jobLatency;
+    private final Timer jobDuration;
+    private final Counter retries;
+    private final Counter failures;
+
+    public ThumbnailWorker(ThumbnailService thumbnailService,
+                           IThumbnailJobService jobService,
+                           @Qualifier("thumbnailExecutor") Executor executor,
+                           MeterRegistry meterRegistry,
+                           @Value("${thumbnails.concurrency:4}") int concurrency,
+                           @Value("${thumbnails.worker-id:}") String workerId) {
+        this.thumbnailService = thumbnailService;
+        this.jobService = jobService;
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.slots = new Semaphore(concurrency);
+        this.workerId = (workerId.isBlank() ? hostName() : workerId) + "-" + UUID.randomUUID();
+
+        Gauge.builder("seddit.thumbnails.queue.depth", queueDepth, AtomicLong::get)
+                .description("thumbnail jobs waiting to be claimed")
+                .register(meterRegistry);
+        Gauge.builder("seddit.thumbnails.in-flight", slots, s -> this.concurrency - s.availablePermits())
+                .description("thumbnail jobs running on this node")
+                .register(meterRegistry);
+        this.jobLatency = Timer.builder("seddit.thumbnails.job.latency")
+                .description("time from enqueue to a finished thumbnail")
+                .register(meterRegistry);
+        this.jobDuration = Timer.builder("seddit.thumbnails.job.duration").register(meterRegistry);
+        this.retries = Counter.builder("seddit.thumbnails.job.failures").tag("outcome", "retry").register(meterRegistry);
+        this.failures = Counter.builder("seddit.thumbnails.job.failures").tag("outcome", "failed").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweepOnStartup() {
+        int released = jobService.releaseExpiredLeases();
+        int orphans = jobService.enqueueOrphans(ORPHAN_BATCH);
+        if (released > 0 || orphans > 0) {
+            log.info("Thumbnail queue startup sweep: {} stale leases released, {} attachments enqueued", released, orphans);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${thumbnails.sweep-interval-ms:60000}")
+    public void sweepExpiredLeases() {
+        int released = jobService.releaseExpiredLeases();
+        if (released > 0) {
+            log.warn("Released {} expired thumbnail job leases", released);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${thumbnails.poll-interval-ms:500}")
+    public void poll() {
+        queueDepth.set(jobService.queueDepth());
 
+        int free = slots.availablePermits();
+        if (free == 0) return;
 
+        List<ThumbnailJob> jobs = jobService.claim(workerId, free);
+        for (ThumbnailJob job : jobs) {
+            slots.acquireUninterruptibly();
+            try {
+                executor.execute(() -> run(job));
+            } catch (TaskRejectedException ex) {
+                slots.release();
+                jobService.fail(job, "rejected by executor: " + ex.getMessage());
+            }
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private void run(ThumbnailJob job) {
+        long started = System.nanoTime();
+        try {
+            boolean done = thumbnailService.generateThumbnailForAttachmentSync(job.getAttachmentId());
+            if (done) {
+                jobService.complete(job);
+                jobLatency.record(Duration.between(job.getEnqueuedAt(), Instant.now()));
+            } else {
+                onFailure(job, "thumbnail could not be generated");
+            }
+        } catch (Exception ex) {
+            onFailure(job, ex.getMessage());
+        } finally {
+            jobDuration.record(Duration.ofNanos(System.nanoTime() - started));
+            slots.release();
+        }
+    }
+
+    private void onFailure(ThumbnailJob job, String error) {
+        try {
+            switch (jobService.fail(job, error)) {
+                case RETRY -> {
+                    retries.increment();
+                    log.warn("Thumbnail job for attachment {} failed (attempt {}), retrying: {}", job.getAttachmentId(), job.getAttempts(), error);
+                }
+                case FAILED -> {
+                    failures.increment();
+                    log.error("Thumbnail Generation Failed for attachment {} after {} attempts: {}", job.getAttachmentId(), job.getAttempts(), error);
+                }
+                // the job is still live under the worker that took the lease over
+                case LEASE_LOST -> log.warn("Thumbnail job {} failed after its lease was taken over: {}", job.getId(), error);
+            }
+        } catch (RuntimeException ex) {
+            // the lease expires and the sweeper hands the job out again
+            log.error("Could not record thumbnail job failure: {}", ex.getMessage());
+        }
+    }
 
-    @Async("thumbnailExecutor")
-    public void generateAsync(Long attachmentId) {
+    private static String hostName() {
         try {
-            thumbnailService.generateThumbnailForAttachmentSync(attachmentId);
+            return InetAddress.getLocalHost().getHostName();
         } catch (Exception ex) {
-            log.error("Thumbnail Generation Failed: {}",ex.getMessage(), new CustomException(PostAttachmentError.ThumbnailGenerationFailed));
+            return "thumbnail-worker";
         }
     }
-}
\ No newline at end of file
+}
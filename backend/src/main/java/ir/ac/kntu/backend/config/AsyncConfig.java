@@ -1,5 +1,6 @@
 package ir.ac.kntu.backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -10,12 +11,13 @@ import java.util.concurrent.Executor;
 @Configuration
 @EnableAsync
 public class AsyncConfig {
+    // ThumbnailWorker never submits more jobs than it has free slots, so the pool is sized to exactly that
     @Bean("thumbnailExecutor")
-    public Executor thumbnailExecutor() {
+    public Executor thumbnailExecutor(@Value("${thumbnails.concurrency:4}") int concurrency) {
         ThreadPoolTaskExecutor exec = new ThreadPoolTaskExecutor();
-        exec.setCorePoolSize(2);
-        exec.setMaxPoolSize(6);
-        exec.setQueueCapacity(100);
+        exec.setCorePoolSize(concurrency);
+        exec.setMaxPoolSize(concurrency);
+        exec.setQueueCapacity(concurrency);
         exec.setThreadNamePrefix("thumb-");
         exec.initialize();
         return exec;
@@ -0,0 +1,68 @@
+package ir.ac.kntu.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.ac.kntu.backend.config.cache.CachingProperties;
+import ir.ac.kntu.backend.config.cache.TwoLevelCacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String USER_PROFILES = "user-profiles";
+    public static final String USER_VIEWS = "user-views";
+    public static final String USER_MINIMAL = "user-minimal";
+    public static final String COMMUNITIES = "communities";
+    public static final String POSTS = "posts";
+    public static final String COUNTS = "approximate-counts";
+    public static final String USER_GENERATIONS = "user-cache-generations";
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory, CachingProperties properties,
+                                             StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+
+        Map<String, RedisCacheConfiguration> configs = new HashMap<>();
+        properties.getCaches().keySet().forEach(name -> configs.put(name, ttl(properties.specOf(name).getTtlMs())));
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(ttl(properties.getDefaults().getTtlMs()))
+                .withInitialCacheConfigurations(configs)
+                .enableStatistics()
+                .build();
+        redisCacheManager.afterPropertiesSet();
+
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, properties, redisTemplate, meterRegistry);
+        // create the configured caches up front so their metrics exist before the first request
+        properties.getCaches().keySet().forEach(cacheManager::getCache);
+        return cacheManager;
+    }
+
+    // shared by every pub/sub consumer; others register their own channels on it
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       CachingProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(properties.getInvalidationChannel()));
+        return container;
+    }
+
+    private static RedisCacheConfiguration ttl(long millis) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMillis(millis))
+                .disableCachingNullValues();
+    }
+}
@@ -0,0 +1,41 @@
+package ir.ac.kntu.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "uploads")
+public class UploadProperties {
+
+    private static final String DEFAULT_KEY = "default";
+
+    private String dir = "./data/uploads";
+    private long chunkMaxBytes = 8L * 1024L * 1024L;
+    private long sessionTtlMs = 24L * 60L * 60L * 1000L;
+
+    // size caps keyed by full type ("[image/gif]" in yml), major type ("video") or "default"
+    private Map<String, Long> maxBytes = new HashMap<>(Map.of(DEFAULT_KEY, 20L * 1024L * 1024L));
+
+    public long maxBytesFor(String contentType) {
+        if (contentType != null) {
+            Long exact = maxBytes.get(contentType);
+            if (exact != null) return exact;
+            int slash = contentType.indexOf('/');
+            Long major = maxBytes.get(slash > 0 ? contentType.substring(0, slash) : contentType);
+            if (major != null) return major;
+        }
+        return maxBytes.getOrDefault(DEFAULT_KEY, 20L * 1024L * 1024L);
+    }
+
+    // no content type may exceed this, used to reject before the type is known
+    public long largestMaxBytes() {
+        return maxBytes.values().stream().mapToLong(Long::longValue).max().orElse(maxBytesFor(null));
+    }
+}
@@ -0,0 +1,47 @@
+package ir.ac.kntu.backend.config.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "caching")
+public class CachingProperties {
+
+    private String invalidationChannel = "cache-invalidation";
+    private Spec defaults = new Spec(60_000L, 10_000L, 1_000L);
+    private Map<String, Spec> caches = new HashMap<>();
+
+    // settings of one cache name; anything left out falls back to the defaults
+    public Spec specOf(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        if (spec == null) return defaults;
+        return new Spec(
+                spec.getTtlMs() != null ? spec.getTtlMs() : defaults.getTtlMs(),
+                spec.getLocalTtlMs() != null ? spec.getLocalTtlMs() : defaults.getLocalTtlMs(),
+                spec.getLocalMaxSize() != null ? spec.getLocalMaxSize() : defaults.getLocalMaxSize());
+    }
+
+    @Getter
+    @Setter
+    public static class Spec {
+        private Long ttlMs;          // Redis (L2) entry lifetime
+        private Long localTtlMs;     // in-process (L1) entry lifetime, capped at ttlMs
+        private Long localMaxSize;   // 0 disables the local tier for this cache
+
+        public Spec() {
+        }
+
+        public Spec(Long ttlMs, Long localTtlMs, Long localMaxSize) {
+            this.ttlMs = ttlMs;
+            this.localTtlMs = localTtlMs;
+            this.localMaxSize = localMaxSize;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ir.ac.kntu.backend.config.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * Caffeine (L1) in front of a Redis cache (L2). Reads try L1 first and fill it from L2; puts and evictions go to
+ * both tiers. Only evictions and clears are announced to the other nodes, which drop their L1 copy: Spring puts on
+ * every @Cacheable miss, and a fill stores what the other nodes read from L2 anyway, so announcing it would only
+ * churn their hot keys. L1 is keyed by the string form of the key, which is also what RedisCache uses, so a key
+ * arriving over pub/sub matches the local entry.
+ */
+final class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final BiConsumer<String, String> invalidationPublisher;   // (cache name, key or null for clear)
+
+    TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, Object> local, Cache remote,
+                  BiConsumer<String, String> invalidationPublisher) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) return new SimpleValueWrapper(value);
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            local.put(localKey, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        // Caffeine serializes concurrent loads of one key on this node; RedisCache does the same for L2
+        return (T) local.get(localKey(key), k -> remote.get(key, valueLoader));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        String localKey = localKey(key);
+        if (value != null) local.put(localKey, value);
+        else local.invalidate(localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        invalidationPublisher.accept(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        invalidationPublisher.accept(name, null);
+    }
+
+    // called for invalidations published by other nodes
+    void invalidateLocal(String localKey) {
+        if (localKey == null) local.invalidateAll();
+        else local.invalidate(localKey);
+    }
+
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,100 @@
+package ir.ac.kntu.backend.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out {@link TwoLevelCache}s backed by a RedisCacheManager, creating them on first use with the settings of
+ * their name (caching.caches.*). Caches are transaction aware: a put or evict inside a transaction is applied after
+ * commit, so a concurrent reader cannot put the old row back in between.
+ * Invalidations are published on a Redis channel as "nodeId\ncacheName\nkey"; a missing key means clear.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private final RedisCacheManager redisCacheManager;
+    private final CachingProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentHashMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Cache> decorated = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager, CachingProperties properties,
+                                StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisCacheManager = redisCacheManager;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return decorated.computeIfAbsent(name, n -> new TransactionAwareCacheDecorator(caches.computeIfAbsent(n, this::create)));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(decorated.keySet());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) return;
+
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.invalidateLocal(parts.length == 3 ? parts[2] : null);
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private TwoLevelCache create(String name) {
+        CachingProperties.Spec spec = properties.specOf(name);
+
+        Cache remote = redisCacheManager.getCache(name);
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumSize(spec.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofMillis(Math.min(spec.getLocalTtlMs(), spec.getTtlMs())))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name, Tags.of("tier", "local"));
+        if (remote instanceof RedisCache redisCache) {
+            new RedisCacheMetrics(redisCache, Tags.of("tier", "remote")).bindTo(meterRegistry);
+        }
+        return new TwoLevelCache(name, local, remote, this::publish);
+    }
+
+    private void publish(String cacheName, String key) {
+        String message = nodeId + "\n" + cacheName + (key != null ? "\n" + key : "");
+        try {
+            redisTemplate.convertAndSend(properties.getInvalidationChannel(), message);
+        } catch (RuntimeException ex) {
+            // other nodes keep their copy until the local TTL runs out
+            log.warn("Could not publish invalidation of {} in cache {}: {}", key, cacheName, ex.getMessage());
+        }
+    }
+}
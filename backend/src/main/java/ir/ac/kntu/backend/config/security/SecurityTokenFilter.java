@@ -21,12 +21,12 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Slf4j
@@ -54,61 +54,77 @@ public class SecurityTokenFilter extends OncePerRequestFilter {
             securityService.authenticateByToken(receivedTokenValue);
         }
 
-        final HttpServletRequest finalRequest;
-
-        if ("base64".equals(request.getHeader("X-Body-Format"))) {
-            final String body = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))
-                    .lines()
-                    .collect(Collectors.joining("\n"));
-
-            final byte[] decodedBody = Base64.getMimeDecoder().decode(body.getBytes(StandardCharsets.UTF_8));
-            finalRequest = new ByteArrayBodyRequestWrapper(request, decodedBody);
-        } else {
-            finalRequest = request;
-        }
+        // decoded on the fly while the controller reads the body, never held in memory as a whole
+        final HttpServletRequest finalRequest = "base64".equals(request.getHeader("X-Body-Format")) ?
+                new Base64BodyRequestWrapper(request) :
+                request;
 
         chain.doFilter(finalRequest, finalResponse);
     }
 
     // ------------------------------
 
-    private static class ByteArrayBodyRequestWrapper extends HttpServletRequestWrapper {
-        private final byte[] body;
+    static class Base64BodyRequestWrapper extends HttpServletRequestWrapper {
+        private DecodingServletInputStream body;
 
         // ---------------
 
-        public ByteArrayBodyRequestWrapper(HttpServletRequest request, byte[] body) {
+        public Base64BodyRequestWrapper(HttpServletRequest request) {
             super(request);
-            this.body = body;
         }
 
         // ---------------
 
         @Override
         public ServletInputStream getInputStream() throws IOException {
-            return new ByteArrayServletInputStream(body);
+            if (body == null) {
+                body = new DecodingServletInputStream(super.getInputStream());
+            }
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            final String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        // the decoded length is not known up front
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1L;
         }
     }
 
-    private static class ByteArrayServletInputStream extends ServletInputStream {
-        private final ByteArrayInputStream delegate;
+    static class DecodingServletInputStream extends ServletInputStream {
+        private final ServletInputStream source;
+        private final InputStream delegate;
+        private boolean finished = false;
 
         // ---------------
 
-        public ByteArrayServletInputStream(byte[] bytes) {
-            delegate = new ByteArrayInputStream(bytes);
+        public DecodingServletInputStream(ServletInputStream source) {
+            this.source = source;
+            // the MIME decoder skips line separators and anything else outside the base64 alphabet
+            this.delegate = Base64.getMimeDecoder().wrap(source);
         }
 
         // ---------------
 
         @Override
         public boolean isFinished() {
-            return false;
+            return finished;
         }
 
         @Override
         public boolean isReady() {
-            return true;
+            return !finished && source.isReady();
         }
 
         @Override
@@ -117,27 +133,21 @@ public class SecurityTokenFilter extends OncePerRequestFilter {
         }
 
         @Override
-        public int read() {
-            return delegate.read();
+        public int read() throws IOException {
+            final int b = delegate.read();
+            if (b == -1) finished = true;
+            return b;
         }
 
         @Override
-        public int read(byte[] b, int off, int len) {
-            return delegate.read(b, off, len);
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = delegate.read(b, off, len);
+            if (n == -1) finished = true;
+            return n;
         }
 
         @Override
-        public int read(byte[] b) throws IOException {
-            return delegate.read(b);
-        }
-
-        @Override
-        public long skip(long n) {
-            return delegate.skip(n);
-        }
-
-        @Override
-        public int available() {
+        public int available() throws IOException {
             return delegate.available();
         }
 
@@ -145,21 +155,6 @@ public class SecurityTokenFilter extends OncePerRequestFilter {
         public void close() throws IOException {
             delegate.close();
         }
-
-        @Override
-        public synchronized void mark(int readLimit) {
-            delegate.mark(readLimit);
-        }
-
-        @Override
-        public synchronized void reset() {
-            delegate.reset();
-        }
-
-        @Override
-        public boolean markSupported() {
-            return delegate.markSupported();
-        }
     }
 
     private static class AddCookieToResponseWrapper extends OnCommittedResponseWrapper {
@@ -1,5 +1,7 @@
 package ir.ac.kntu.backend.config.security;
 
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -21,4 +23,10 @@ class SigningKeys {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
+    // immutable and thread-safe, so one instance serves every request
+    @Bean
+    public JwtParser jwtParser(SecretKey jwtSigningKey) {
+        return Jwts.parserBuilder().setSigningKey(jwtSigningKey).build();
+    }
+
 }
@@ -8,17 +8,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import ir.ac.kntu.backend.DTO.CommentDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
 import ir.ac.kntu.backend.iservice.ICommentService;
+import ir.ac.kntu.backend.iservice.IMyVoteService;
+import ir.ac.kntu.backend.model.CommentSort;
+import ir.ac.kntu.backend.search.ETotalMode;
+import ir.ac.kntu.backend.search.PageRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Tag(name = "Comment API",
         description = "Endpoints for creating, editing, deleting and listing comments")
 @RequiredArgsConstructor
@@ -27,6 +33,7 @@ import org.springframework.web.bind.annotation.*;
 public class CommentController {
 
     private final ICommentService commentService;
+    private final IMyVoteService myVoteService;
 
 
 
@@ -91,11 +98,36 @@ public class CommentController {
     })
     @GetMapping(value = "/posts/{postId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Page<CommentDTO.CommentThread>> listTopLevelForPost(@PathVariable Long postId, int page, int size,
+            @Parameter(description = "exact counts the total, none only reports hasNext, approximate uses a cached count") @RequestParam(defaultValue = "exact") ETotalMode total,
+            @Parameter(description = "maximum immediate replies to attach to each parent (0 = none, Integer.MAX = all)") @RequestParam(defaultValue = "10") int replyLimit,
+            @Parameter(description = "Maximum reply depth to fetch (1 = immediate children)") @RequestParam(defaultValue = "5") int maxDepth,
+            @Parameter(description = "ranking of comments and replies: OLD, NEW, TOP, BEST or CONTROVERSIAL") @RequestParam(defaultValue = "OLD") CommentSort sort,
+            @Parameter(description = "include the caller's own vote on each comment as myVote") @RequestParam(defaultValue = "false") boolean myVote) {
+
+        Pageable pageable = PageRequest.of(page, size, total);
+        Page<CommentDTO.CommentThread> threads = commentService.getTopLevelCommentsWithReplies(postId, pageable, replyLimit, maxDepth, sort);
+        if (myVote) myVoteService.applyToThreads(threads.getContent());
+        return ResponseEntity.ok(threads);
+    }
+
+    @Operation(summary = "Top-level comments for a post (keyset)", description = "Oldest first, continued by the returned nextCursor; no total is counted.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of comment threads",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SliceDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or parameters", content = @Content)
+    })
+    @GetMapping(value = "/posts/{postId}/feed", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SliceDTO<CommentDTO.CommentThread>> topLevelFeedForPost(@PathVariable Long postId,
+            @Parameter(description = "nextCursor of the previous slice, omit for the first one") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Slice size") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "maximum immediate replies to attach to each parent (0 = none, Integer.MAX = all)") @RequestParam(defaultValue = "10") int replyLimit,
-            @Parameter(description = "Maximum reply depth to fetch (1 = immediate children)") @RequestParam(defaultValue = "5") int maxDepth) {
+            @Parameter(description = "Maximum reply depth to fetch (1 = immediate children)") @RequestParam(defaultValue = "5") int maxDepth,
+            @Parameter(description = "include the caller's own vote on each comment as myVote") @RequestParam(defaultValue = "false") boolean myVote) {
 
-        Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(commentService.getTopLevelCommentsWithReplies(postId, pageable, replyLimit, maxDepth));
+        SliceDTO<CommentDTO.CommentThread> threads = commentService.getTopLevelCommentsWithRepliesAfter(postId, cursor, size, replyLimit, maxDepth);
+        if (myVote) myVoteService.applyToThreads(threads.getContent());
+        return ResponseEntity.ok(threads);
     }
 
 
@@ -108,9 +140,13 @@ public class CommentController {
     })
     @GetMapping(value = "/{id}/thread", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<CommentDTO.CommentThread> getCommentThread(
-            @Parameter(description = "ID of the comment to fetch thread for", required = true) @PathVariable Long id) {
+            @Parameter(description = "ID of the comment to fetch thread for", required = true) @PathVariable Long id,
+            @Parameter(description = "ranking of the replies under each comment: OLD, NEW, TOP, BEST or CONTROVERSIAL") @RequestParam(defaultValue = "OLD") CommentSort sort,
+            @Parameter(description = "include the caller's own vote on each comment as myVote") @RequestParam(defaultValue = "false") boolean myVote) {
 
-        return ResponseEntity.ok(commentService.getCommentThread(id));
+        CommentDTO.CommentThread thread = commentService.getCommentThread(id, sort);
+        if (myVote) myVoteService.applyToThreads(List.of(thread));
+        return ResponseEntity.ok(thread);
     }
 
     @Operation(summary = "List comments authored by a user (paged)")
@@ -125,10 +161,33 @@ public class CommentController {
     public ResponseEntity<Page<CommentDTO.Summary>> listUserComments(
             @Parameter(description = "ID of the user whose comments will be listed", required = true) @PathVariable Long userId,
             @Parameter(description = "Page index (0-based)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "exact counts the total, none only reports hasNext, approximate uses a cached count") @RequestParam(defaultValue = "exact") ETotalMode total,
+            @Parameter(description = "include the caller's own vote on each comment as myVote") @RequestParam(defaultValue = "false") boolean myVote) {
+
+        Pageable pageable = PageRequest.of(page, size, total);
+        Page<CommentDTO.Summary> comments = commentService.listUserComments(userId, pageable);
+        if (myVote) myVoteService.applyToComments(comments.getContent());
+        return ResponseEntity.ok(comments);
+    }
+
+    @Operation(summary = "Comments authored by a user (keyset)", description = "Newest first, continued by the returned nextCursor.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of comment summaries",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SliceDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content)
+    })
+    @GetMapping(value = "/user/{userId}/feed", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SliceDTO<CommentDTO.Summary>> userCommentFeed(
+            @Parameter(description = "ID of the user whose comments will be listed", required = true) @PathVariable Long userId,
+            @Parameter(description = "nextCursor of the previous slice, omit for the first one") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Slice size") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "include the caller's own vote on each comment as myVote") @RequestParam(defaultValue = "false") boolean myVote) {
 
-        Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(commentService.listUserComments(userId, pageable));
+        SliceDTO<CommentDTO.Summary> comments = commentService.listUserCommentsAfter(userId, cursor, size);
+        if (myVote) myVoteService.applyToComments(comments.getContent());
+        return ResponseEntity.ok(comments);
     }
 
 }
@@ -8,12 +8,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import ir.ac.kntu.backend.DTO.CommunityDTO;
 import ir.ac.kntu.backend.DTO.CommunityImageDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
 import ir.ac.kntu.backend.iservice.ICommunityService;
+import ir.ac.kntu.backend.search.ETotalMode;
+import ir.ac.kntu.backend.search.PageRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -39,8 +41,9 @@ public class CommunityController {
                             schema = @Schema(implementation = CommunityDTO.class)))
     })
     @GetMapping("/")
-    public ResponseEntity<Page<CommunityDTO>> listAllCommunities(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size) {
-        Pageable pageable = PageRequest.of(page, size);
+    public ResponseEntity<Page<CommunityDTO>> listAllCommunities(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "exact") ETotalMode total) {
+        Pageable pageable = PageRequest.of(page, size, total);
         return ResponseEntity.ok(communityService.listAllCommunities(pageable));
     }
 
@@ -51,8 +54,9 @@ public class CommunityController {
                             schema = @Schema(implementation = CommunityDTO.class)))
     })
     @GetMapping("/joined/{userId}")
-    public ResponseEntity<Page<CommunityDTO>> listJoined(@PathVariable Long userId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size) {
-        Pageable p = PageRequest.of(page, size);
+    public ResponseEntity<Page<CommunityDTO>> listJoined(@PathVariable Long userId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "exact") ETotalMode total) {
+        Pageable p = PageRequest.of(page, size, total);
         return ResponseEntity.ok(communityService.listJoinedCommunities(userId, p));
     }
 
@@ -65,11 +69,46 @@ public class CommunityController {
     })
     @GetMapping("/owned/{userId}")
     @PreAuthorize("#userId == authentication.principal")
-    public ResponseEntity<Page<CommunityDTO>> listOwned(@PathVariable Long userId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size) {
-        Pageable p = PageRequest.of(page, size);
+    public ResponseEntity<Page<CommunityDTO>> listOwned(@PathVariable Long userId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "exact") ETotalMode total) {
+        Pageable p = PageRequest.of(page, size, total);
         return ResponseEntity.ok(communityService.listOwnedCommunities(userId, p));
     }
 
+    @Operation(summary = "List communities (keyset)", description = "Communities in creation order, continued by the returned nextCursor.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of communities",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SliceDTO.class)))
+    })
+    @GetMapping("/feed")
+    public ResponseEntity<SliceDTO<CommunityDTO>> communityFeed(@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(communityService.listAllCommunitiesAfter(cursor, size));
+    }
+
+    @Operation(summary = "List communities the user joined (keyset)")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of joined communities",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SliceDTO.class)))
+    })
+    @GetMapping("/joined/{userId}/feed")
+    public ResponseEntity<SliceDTO<CommunityDTO>> joinedFeed(@PathVariable Long userId, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(communityService.listJoinedCommunitiesAfter(userId, cursor, size));
+    }
+
+    @Operation(summary = "List communities the user owns (keyset)")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of owned communities",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SliceDTO.class)))
+    })
+    @GetMapping("/owned/{userId}/feed")
+    @PreAuthorize("#userId == authentication.principal")
+    public ResponseEntity<SliceDTO<CommunityDTO>> ownedFeed(@PathVariable Long userId, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(communityService.listOwnedCommunitiesAfter(userId, cursor, size));
+    }
+
 
     @Operation(summary = "Create a community",
             description = "Create a new community. The request body should contain name and description.")
@@ -7,20 +7,29 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
+import ir.ac.kntu.backend.iservice.IMyVoteService;
 import ir.ac.kntu.backend.iservice.IPostService;
+import ir.ac.kntu.backend.service.ThumbnailCompletionNotifier;
+import ir.ac.kntu.backend.search.ETotalMode;
+import ir.ac.kntu.backend.search.PageRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.http.CacheControl;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 @Tag(
@@ -33,6 +42,8 @@ import java.util.concurrent.TimeUnit;
 public class PostController {
 
     private final IPostService postService;
+    private final ThumbnailCompletionNotifier thumbnailCompletionNotifier;
+    private final IMyVoteService myVoteService;
 
 
 
@@ -65,8 +76,9 @@ public class PostController {
                             schema = @Schema(implementation = PostDTO.class)))
     })
     @GetMapping("/")
-    public ResponseEntity<Page<PostDTO>> listPosts(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size) {
-        return ResponseEntity.ok(postService.listPosts(PageRequest.of(page, size)));
+    public ResponseEntity<Page<PostDTO>> listPosts(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "exact") ETotalMode total, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listPosts(PageRequest.of(page, size, total)), myVote));
     }
 
 
@@ -77,8 +89,33 @@ public class PostController {
                             schema = @Schema(implementation = PostDTO.class)))
     })
     @GetMapping("/community/{communityId}")
-    public ResponseEntity<Page<PostDTO>> listByCommunity(@PathVariable Long communityId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size) {
-        return ResponseEntity.ok(postService.listPostsByCommunity(communityId, PageRequest.of(page, size)));
+    public ResponseEntity<Page<PostDTO>> listByCommunity(@PathVariable Long communityId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "exact") ETotalMode total, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listPostsByCommunity(communityId, PageRequest.of(page, size, total)), myVote));
+    }
+
+
+    @Operation(summary = "Hot posts (paged)", description = "Posts of the last days ranked by votes, comments and age; the total is the number of ranked posts.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Paged list of posts, hottest first",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = PostDTO.class)))
+    })
+    @GetMapping("/hot")
+    public ResponseEntity<Page<PostDTO>> listHot(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listHotPosts(PageRequest.of(page, size, ETotalMode.exact)), myVote));
+    }
+
+
+    @Operation(summary = "Hot posts of a community (paged)", description = "Posts of a community ranked by votes, comments and age.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Paged list of posts for given community, hottest first",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = PostDTO.class)))
+    })
+    @GetMapping("/community/{communityId}/hot")
+    public ResponseEntity<Page<PostDTO>> listHotByCommunity(@PathVariable Long communityId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listHotPostsByCommunity(communityId, PageRequest.of(page, size, ETotalMode.exact)), myVote));
     }
 
 
@@ -89,8 +126,59 @@ public class PostController {
                             schema = @Schema(implementation = PostDTO.class)))
     })
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Page<PostDTO>> listByUser(@PathVariable Long userId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size) {
-        return ResponseEntity.ok(postService.listUserPosts(userId, PageRequest.of(page, size)));
+    public ResponseEntity<Page<PostDTO>> listByUser(@PathVariable Long userId, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "exact") ETotalMode total, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listUserPosts(userId, PageRequest.of(page, size, total)), myVote));
+    }
+
+
+    @Operation(summary = "Post feed (keyset)", description = "Newest posts first. Pass the returned nextCursor to get the following slice; no total is counted.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of posts",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SliceDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content)
+    })
+    @GetMapping("/feed")
+    public ResponseEntity<SliceDTO<PostDTO>> feed(@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listPostsAfter(cursor, size), myVote));
+    }
+
+
+    @Operation(summary = "Home feed (keyset)", description = "Newest posts of the communities the current user joined, continued by nextCursor.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of posts",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SliceDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Not authenticated", content = @Content)
+    })
+    @GetMapping("/home")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SliceDTO<PostDTO>> homeFeed(@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listHomeFeed(cursor, size), myVote));
+    }
+
+
+    @Operation(summary = "Community post feed (keyset)", description = "Newest posts of a community first, continued by nextCursor.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of posts for given community",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SliceDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content)
+    })
+    @GetMapping("/community/{communityId}/feed")
+    public ResponseEntity<SliceDTO<PostDTO>> communityFeed(@PathVariable Long communityId, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listPostsByCommunityAfter(communityId, cursor, size), myVote));
+    }
+
+
+    @Operation(summary = "User post feed (keyset)", description = "Newest posts of a user first, continued by nextCursor.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slice of posts for given user",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SliceDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor", content = @Content)
+    })
+    @GetMapping("/user/{userId}/feed")
+    public ResponseEntity<SliceDTO<PostDTO>> userFeed(@PathVariable Long userId, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean myVote) {
+        return ResponseEntity.ok(withMyVote(postService.listUserPostsAfter(userId, cursor, size), myVote));
     }
 
 
@@ -102,8 +190,10 @@ public class PostController {
             @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
     })
     @GetMapping("/{id}")
-    public ResponseEntity<PostDTO> getPost(@PathVariable Long id) {
-        return ResponseEntity.ok(postService.getPost(id));
+    public ResponseEntity<PostDTO> getPost(@PathVariable Long id, @RequestParam(defaultValue = "false") boolean myVote) {
+        PostDTO post = postService.getPost(id);
+        // the cached instance is shared between callers, so the caller's vote goes on a copy
+        return ResponseEntity.ok(myVote ? myVoteService.applyToCopy(post) : post);
     }
 
 
@@ -137,59 +227,93 @@ public class PostController {
 
 
     @Operation(summary = "Download an attachment (binary stream)",
-            description = "Stream the binary content of an attachment. Sets Content-Disposition to trigger download.")
+            description = "Stream the binary content of an attachment. Sets Content-Disposition to trigger download. " +
+                    "Supports single byte Range requests (with If-Range) and conditional requests via the content-hash ETag.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Attachment stream",
                     content = @Content(mediaType = "application/octet-stream",
                             schema = @Schema(type = "string", format = "binary"))),
-            @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
+            @ApiResponse(responseCode = "206", description = "Requested byte range of the attachment", content = @Content),
+            @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match matched the ETag)", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable", content = @Content)
     })
     @GetMapping("/{postId}/attachments/{attId}")
-    public ResponseEntity<Resource> downloadAttachment(@PathVariable Long postId, @PathVariable Long attId) {
+    public void downloadAttachment(@PathVariable Long postId, @PathVariable Long attId,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
 
-        Resource res = postService.streamAttachment(postId, attId);
-        PostDTO.AttachmentDTO meta = postService.getAttachmentMeta(postId, attId);
+        PostDTO.AttachmentContent content = postService.openAttachment(postId, attId);
+        PostDTO.AttachmentDTO meta = content.getMeta();
         MediaType mt = MediaType.APPLICATION_OCTET_STREAM;
         try { if (meta.getContentType() != null) mt = MediaType.parseMediaType(meta.getContentType()); } catch (Exception ignored) {}
-        return ResponseEntity.ok()
-                .contentType(mt)
-                .contentLength(meta.getSize())
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + meta.getFilename() + "\"")
-                .body(res);
+        RangedResourceWriter.write(request, response, content.getResource(), content.getEtag(), mt,
+                "attachment; filename=\"" + meta.getFilename() + "\"");
     }
 
 
     @Operation(summary = "Get attachment thumbnail (image)",
-            description = "Return thumbnail bytes for an attachment. If the thumbnail is not yet ready, a small placeholder image is returned.")
+            description = "Return thumbnail bytes for an attachment. If the thumbnail is not yet ready, a small placeholder image is returned. " +
+                    "The optional w parameter selects the smallest rendition at least that many pixels wide (e.g. 160, 320, 640).")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Image stream",
                     content = {
                             @Content(mediaType = "image/jpeg", schema = @Schema(type = "string", format = "binary")),
                             @Content(mediaType = "image/png", schema = @Schema(type = "string", format = "binary"))
                     }),
+            @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match matched the ETag)", content = @Content),
             @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
     })
     @GetMapping("/{postId}/attachments/{attId}/thumbnail")
-    public ResponseEntity<Resource> downloadAttachmentThumbnail(@PathVariable Long postId, @PathVariable Long attId) {
-
-        Resource res = postService.streamAttachmentThumbnail(postId, attId);
-        PostDTO.AttachmentDTO meta = postService.getAttachmentMeta(postId, attId);
-        MediaType mt;
-        if (meta.getThumbnailStatus() != null && meta.getThumbnailStatus().name().equals("DONE")) {
-            mt = MediaType.IMAGE_JPEG;
-        } else {
-            mt = MediaType.IMAGE_PNG;
+    public ResponseEntity<Resource> downloadAttachmentThumbnail(@PathVariable Long postId, @PathVariable Long attId,
+                                                                @RequestParam(value = "w", required = false) Integer w,
+                                                                WebRequest webRequest) {
+
+        PostDTO.ThumbnailContent thumb = postService.openThumbnail(postId, attId, w);
+        long maxAge = thumb.isPlaceholder() ? 5L : 60L * 60L * 24L * 7L;
+        CacheControl cacheControl = CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic();
+
+        if (webRequest.checkNotModified(thumb.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
         }
-        long maxAge = (meta.getThumbnailStatus() != null && meta.getThumbnailStatus().name().equals("DONE")) ? 60L * 60L * 24L * 7L : 5L;
+
+        MediaType mt = MediaType.IMAGE_JPEG;
+        try { mt = MediaType.parseMediaType(thumb.getContentType()); } catch (Exception ignored) {}
         return ResponseEntity.ok()
                 .contentType(mt)
-                .cacheControl(CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic())
-                .body(res);
+                .eTag(thumb.getEtag())
+                .cacheControl(cacheControl)
+                .body(thumb.getResource());
+    }
+
+
+    @Operation(summary = "Wait for an attachment thumbnail",
+            description = "Long-poll: returns the attachment meta as soon as its thumbnail is DONE or FAILED, " +
+                    "or the current meta once waitSeconds (max 60) have passed. Use instead of polling the thumbnail itself.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Attachment meta with the current thumbnail status"),
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content)
+    })
+    @GetMapping("/{postId}/attachments/{attId}/thumbnail/status")
+    public DeferredResult<PostDTO.AttachmentDTO> awaitAttachmentThumbnail(@PathVariable Long postId, @PathVariable Long attId,
+                                                                          @RequestParam(value = "waitSeconds", defaultValue = "25") long waitSeconds) {
+
+        long wait = Math.max(0L, Math.min(waitSeconds, 60L));
+        return thumbnailCompletionNotifier.await(postId, attId, TimeUnit.SECONDS.toMillis(wait));
     }
 
 
     //TODO: create endpoint for thumbnail generation with custom user-defined frame as thumbnail
 
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
 
+    // pages built for this request, so myVote can be set on them in place
+    private Page<PostDTO> withMyVote(Page<PostDTO> posts, boolean myVote) {
+        if (myVote) myVoteService.applyToPosts(posts.getContent());
+        return posts;
+    }
 
+    private SliceDTO<PostDTO> withMyVote(SliceDTO<PostDTO> posts, boolean myVote) {
+        if (myVote) myVoteService.applyToPosts(posts.getContent());
+        return posts;
+    }
 }
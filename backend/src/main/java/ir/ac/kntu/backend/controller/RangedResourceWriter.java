@@ -0,0 +1,141 @@
+package ir.ac.kntu.backend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes a resource to the servlet response honouring Range / If-Range / If-None-Match.
+ * Only single byte ranges are served as 206; multi-range requests get the full entity, which RFC 9110 allows.
+ * File-backed resources are handed to Tomcat's sendfile when available and otherwise copied with
+ * FileChannel.transferTo, so the bytes never pass through the heap.
+ */
+final class RangedResourceWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private RangedResourceWriter() {
+    }
+
+    static void write(HttpServletRequest request, HttpServletResponse response, Resource resource,
+                      String etag, MediaType contentType, String contentDisposition) throws IOException {
+
+        String quotedEtag = "\"" + etag + "\"";
+        long length = resource.contentLength();
+
+        response.setHeader(HttpHeaders.ETAG, quotedEtag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), quotedEtag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        response.setContentType(contentType.toString());
+        if (contentDisposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+
+        long start = 0;
+        long end = length - 1;
+
+        HttpRange range = requestedRange(request, quotedEtag);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException unsatisfiable) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        if (resource.isFile()) {
+            File file = resource.getFile();
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end + 1);
+                return;
+            }
+            transfer(file, start, count, response.getOutputStream());
+            return;
+        }
+
+        try (InputStream in = resource.getInputStream()) {
+            StreamUtils.copyRange(in, response.getOutputStream(), start, end);
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private static HttpRange requestedRange(HttpServletRequest request, String quotedEtag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) return null;
+
+        // If-Range only holds for a strong entity-tag match; a date or another tag means "send it all"
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(quotedEtag)) return null;
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException malformed) {
+            return null;
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String quotedEtag) {
+        if (ifNoneMatch == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            String t = tag.trim();
+            if (t.startsWith("W/")) t = t.substring(2);
+            if (t.equals("*") || t.equals(quotedEtag)) return true;
+        }
+        return false;
+    }
+
+    private static void transfer(File file, long start, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ir.ac.kntu.backend.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.DTO.UploadDTO;
+import ir.ac.kntu.backend.iservice.IUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@Tag(
+        name = "Upload API",
+        description = "Resumable chunked uploads of post attachments: create a session, PUT chunks, complete"
+)
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/uploads")
+public class UploadController {
+
+    private final IUploadService uploadService;
+
+    @Operation(summary = "Start a resumable upload",
+            description = "Opens an upload session for an attachment of one of the caller's posts.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Session created, send the first chunk at offset 0"),
+            @ApiResponse(responseCode = "413", description = "Declared size exceeds the cap for the content type")
+    })
+    @PostMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<UploadDTO.SessionRs> create(@Valid @RequestBody UploadDTO.SessionCreateRq rq) throws IOException {
+        return ResponseEntity.ok(uploadService.createSession(rq));
+    }
+
+    @Operation(summary = "Upload state", description = "Returns the offset to resume from after a dropped connection.")
+    @GetMapping("/{id}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<UploadDTO.SessionRs> get(@PathVariable String id) {
+        return ResponseEntity.ok(uploadService.getSession(id));
+    }
+
+    @Operation(summary = "Append a chunk",
+            description = "Raw bytes starting at the session's current offset, with their SHA-256 (hex) in X-Chunk-SHA256.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Chunk stored, returns the new offset"),
+            @ApiResponse(responseCode = "409", description = "Offset does not match the server's, resume from the returned offset"),
+            @ApiResponse(responseCode = "422", description = "Checksum mismatch, resend the chunk")
+    })
+    @PutMapping(value = "/{id}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<UploadDTO.SessionRs> append(@PathVariable String id,
+                                                      @RequestParam long offset,
+                                                      @RequestHeader("X-Chunk-SHA256") String checksum,
+                                                      HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(uploadService.appendChunk(id, offset, checksum, request.getInputStream()));
+    }
+
+    @Operation(summary = "Complete the upload",
+            description = "Stores the assembled file as an attachment of the post and queues its thumbnail.")
+    @PostMapping("/{id}/complete")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<PostDTO.AttachmentDTO> complete(@PathVariable String id) throws IOException {
+        return ResponseEntity.ok(uploadService.complete(id));
+    }
+
+    @Operation(summary = "Abort the upload")
+    @DeleteMapping("/{id}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Void> abort(@PathVariable String id) throws IOException {
+        uploadService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+}
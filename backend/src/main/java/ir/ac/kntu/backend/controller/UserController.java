@@ -10,10 +10,8 @@ import ir.ac.kntu.backend.DTO.ProfilePhotoDTO;
 import ir.ac.kntu.backend.DTO.SearchDTO;
 import ir.ac.kntu.backend.DTO.UserDTO;
 import ir.ac.kntu.backend.iservice.IUserService;
-import ir.ac.kntu.backend.model.ProfilePhoto;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -58,12 +56,9 @@ public class UserController {
     @PreAuthorize("#id == authentication.principal")
     public ResponseEntity<Resource> getProfilePhoto(@PathVariable Long id) {
 
-        ProfilePhoto photo = userService.getProfilePhoto(id);
-
-        ByteArrayResource resource = new ByteArrayResource(photo.getData());
+        Resource resource = userService.downloadProfilePhoto(id);
 
         return ResponseEntity.ok()
-                .contentLength(photo.getData().length)
                 .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
                 .body(resource);
     }
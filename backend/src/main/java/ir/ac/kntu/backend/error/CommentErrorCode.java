@@ -11,7 +11,8 @@ public enum CommentErrorCode implements IErrorCode {
     CommentNotFound(404),
     IllegalReply(HttpStatus.FORBIDDEN.value()),
     UnauthorizedEditByNonOwner(HttpStatus.UNAUTHORIZED.value()),
-    EditOfDeletedComment(HttpStatus.UNAUTHORIZED.value());
+    EditOfDeletedComment(HttpStatus.UNAUTHORIZED.value()),
+    ThreadTooDeep(HttpStatus.BAD_REQUEST.value());
 
 
     // ------------------------------
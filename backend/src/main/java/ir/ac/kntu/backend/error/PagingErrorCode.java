@@ -0,0 +1,21 @@
+package ir.ac.kntu.backend.error;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+@Getter
+@RequiredArgsConstructor
+public enum PagingErrorCode implements IErrorCode {
+
+    InvalidCursor(HttpStatus.BAD_REQUEST.value());
+
+    // ------------------------------
+
+    private final Integer httpStatusCode;
+
+    @Override
+    public String getCode() {
+        return name();
+    }
+}
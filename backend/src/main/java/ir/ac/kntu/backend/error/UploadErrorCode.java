@@ -0,0 +1,27 @@
+package ir.ac.kntu.backend.error;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+@Getter
+@RequiredArgsConstructor
+public enum UploadErrorCode implements IErrorCode {
+
+    UploadSessionNotFound(HttpStatus.NOT_FOUND.value()),
+    OffsetMismatch(HttpStatus.CONFLICT.value()),
+    UploadInProgress(HttpStatus.CONFLICT.value()),
+    UploadIncomplete(HttpStatus.CONFLICT.value()),
+    ChunkTooLarge(HttpStatus.PAYLOAD_TOO_LARGE.value()),
+    ChecksumMismatch(HttpStatus.UNPROCESSABLE_ENTITY.value()),
+    InvalidUploadSize(HttpStatus.BAD_REQUEST.value());
+
+    // ------------------------------
+
+    private final Integer httpStatusCode;
+
+    @Override
+    public String getCode() {
+        return name();
+    }
+}
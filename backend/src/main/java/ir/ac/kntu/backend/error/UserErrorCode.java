@@ -15,7 +15,8 @@ public enum UserErrorCode implements IErrorCode {
 	InvalidUsernameOrPassword(400),
 	InvalidOTP(400),
 	UserIsDisabled(400),
-    InvalidPassword(400);
+    InvalidPassword(400),
+    ProfilePhotoNotFound(404);
 
 	// ------------------------------
 
@@ -0,0 +1,7 @@
+package ir.ac.kntu.backend.event;
+
+import java.util.Collection;
+
+// published when the inputs of the posts' ranking scores change (creation, flushed votes, comments added or removed)
+public record PostActivityEvent(Collection<Long> postIds) {
+}
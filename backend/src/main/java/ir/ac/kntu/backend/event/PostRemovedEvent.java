@@ -0,0 +1,5 @@
+package ir.ac.kntu.backend.event;
+
+// published when a post is deleted, so ranked feeds drop it; communityId may be null
+public record PostRemovedEvent(Long postId, Long communityId) {
+}
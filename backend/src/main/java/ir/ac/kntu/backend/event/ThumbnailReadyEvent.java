@@ -0,0 +1,7 @@
+package ir.ac.kntu.backend.event;
+
+import ir.ac.kntu.backend.model.ThumbnailStatus;
+
+// published when an attachment's thumbnail reaches a final state (DONE, or FAILED after the last attempt)
+public record ThumbnailReadyEvent(Long attachmentId, ThumbnailStatus status) {
+}
@@ -0,0 +1,5 @@
+package ir.ac.kntu.backend.event;
+
+// published when anything shown on a user's profile or public view changes (details, photo, posts, comments, memberships)
+public record UserContentChangedEvent(Long userId) {
+}
@@ -2,7 +2,9 @@ package ir.ac.kntu.backend.iservice;
 
 import ir.ac.kntu.backend.DTO.*;
 import ir.ac.kntu.backend.model.*;
+import ir.ac.kntu.backend.repository.PostAttachmentRepository;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.NullValuePropertyMappingStrategy;
 
@@ -14,7 +16,16 @@ public interface IBeanMapper {
     CommentDTO.CommentThread toCommentThread(CommentDTO.Summary summary);
     User toUser(UserDTO.UserCreateRq userCreateRq);
     UserDTO.UserStatus toUserStatus(User user);
+    // attachments are filled from PostAttachmentRepository.AttachmentMeta so listings never load the entities
+    @Mapping(target = "attachments", ignore = true)
     PostDTO toPostDTO(Post post);
+    // listings also fill the author's photo and the community's avatar from projections, so neither image is loaded
+    @Mapping(target = "attachments", ignore = true)
+    @Mapping(target = "author.profilePhoto", ignore = true)
+    @Mapping(target = "community.avatarImage", ignore = true)
+    PostDTO toFeedPostDTO(Post post);
+    // for per-caller fields on a DTO that may be shared through the cache
+    PostDTO copyPostDTO(PostDTO post);
     UserDTO.UserCreateRs toUserCreateRs(User user);
     UserDTO.UserViewDTO toUserViewDTO(User user);
     Comment toComment(CommentDTO.CommentCreateRq rq);
@@ -91,6 +102,26 @@ public interface IBeanMapper {
         return dto;
     }
 
+    default PostDTO.AttachmentDTO toAttachmentDTO(PostAttachmentRepository.AttachmentMeta meta) {
+
+        if ( meta == null ) {
+            return null;
+        }
+
+        PostDTO.AttachmentDTO dto = new PostDTO.AttachmentDTO();
+
+        dto.setId(meta.getId());
+        dto.setFilename(meta.getFilename());
+        dto.setContentType(meta.getContentType());
+        dto.setSize(meta.getSize());
+        dto.setUrl("/api/posts/" + meta.getPostId() + "/attachments/" + meta.getId());
+        dto.setThumbnailStatus(meta.getThumbnailStatus());
+        dto.setThumbnailVersion(meta.getThumbnailVersion());
+        dto.setThumbnailUrl("/api/posts/" + meta.getPostId() + "/attachments/" + meta.getId()
+                + "/thumbnail?v=" + meta.getThumbnailVersion());
+        return dto;
+    }
+
     default CommunityDTO.MinimalView toCommunityMinimalView(Community community) {
 
         if ( community == null ) {
@@ -101,10 +132,12 @@ public interface IBeanMapper {
 
         minimalView.setId( community.getId() );
         minimalView.setName( community.getName() );
-        minimalView.setAvatarImage( new CommunityImageDTO(
-                community.getAvatarImage().getId(),
-                community.getAvatarImage().getSize(),
-                "/api/communities/" + community.getId() + "/avatar") );
+        if (community.getAvatarImage() != null) {
+            minimalView.setAvatarImage( new CommunityImageDTO(
+                    community.getAvatarImage().getId(),
+                    community.getAvatarImage().getSize(),
+                    "/api/communities/" + community.getId() + "/avatar") );
+        }
 
         return minimalView;
     }
@@ -120,7 +153,7 @@ public interface IBeanMapper {
         communityDTO.setName( community.getName() );
         communityDTO.setDescription( community.getDescription() );
         communityDTO.setCreatedAt( community.getCreatedAt() );
-        communityDTO.setMembers( community.getMembers() != null ? community.getMembers().size() : 0 );
+        communityDTO.setMembers( community.getMemberCount() );
 
 
         if (community.getAvatarImage() != null) {
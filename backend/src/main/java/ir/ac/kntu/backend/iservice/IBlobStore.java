@@ -0,0 +1,28 @@
+package ir.ac.kntu.backend.iservice;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content-addressed storage for binary payloads (attachments, thumbnails, profile/community images).
+ * Keys are the lowercase hex SHA-256 of the content, so storing the same bytes twice yields the same key.
+ */
+public interface IBlobStore {
+
+    String put(byte[] data) throws IOException;
+
+    // consumes (but does not close) the stream
+    String put(InputStream in) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    Resource asResource(String key);
+
+    long size(String key) throws IOException;
+
+    boolean exists(String key);
+
+    void delete(String key) throws IOException;
+}
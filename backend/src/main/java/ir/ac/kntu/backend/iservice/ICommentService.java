@@ -1,6 +1,8 @@
 package ir.ac.kntu.backend.iservice;
 
 import ir.ac.kntu.backend.DTO.CommentDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
+import ir.ac.kntu.backend.model.CommentSort;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,11 +20,16 @@ public interface ICommentService {
     boolean deleteComment(Long commentId);
 
     @Transactional(readOnly = true)
-    Page<CommentDTO.CommentThread> getTopLevelCommentsWithReplies(Long postId, Pageable pageable, int replyLimit, int maxDepth);
+    Page<CommentDTO.CommentThread> getTopLevelCommentsWithReplies(Long postId, Pageable pageable, int replyLimit, int maxDepth, CommentSort sort);
 
     @Transactional(readOnly = true)
-    CommentDTO.CommentThread getCommentThread(Long parentCommentId);
+    CommentDTO.CommentThread getCommentThread(Long parentCommentId, CommentSort sort);
 
     // + CRUD!! and search?
     Page<CommentDTO.Summary> listUserComments(Long userId, Pageable pageable);
+
+    // keyset variants; cursor is the nextCursor of the previous slice, null for the first one
+    SliceDTO<CommentDTO.CommentThread> getTopLevelCommentsWithRepliesAfter(Long postId, String cursor, int size, int replyLimit, int maxDepth);
+
+    SliceDTO<CommentDTO.Summary> listUserCommentsAfter(Long userId, String cursor, int size);
 }
@@ -2,6 +2,7 @@ package ir.ac.kntu.backend.iservice;
 
 import ir.ac.kntu.backend.DTO.CommunityDTO;
 import ir.ac.kntu.backend.DTO.CommunityImageDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -21,6 +22,13 @@ public interface ICommunityService {
     @Transactional(readOnly = true)
     Page<CommunityDTO> listOwnedCommunities(Long userId, Pageable pageable);
 
+    // keyset variants in id order; cursor is the nextCursor of the previous slice, null for the first one
+    SliceDTO<CommunityDTO> listAllCommunitiesAfter(String cursor, int size);
+
+    SliceDTO<CommunityDTO> listJoinedCommunitiesAfter(Long userId, String cursor, int size);
+
+    SliceDTO<CommunityDTO> listOwnedCommunitiesAfter(Long userId, String cursor, int size);
+
     CommunityDTO createCommunity(CommunityDTO.CommunityCreateRequest rq);
 
     CommunityDTO getCommunity(Long id);
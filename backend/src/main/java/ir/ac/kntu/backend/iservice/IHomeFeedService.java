@@ -0,0 +1,10 @@
+package ir.ac.kntu.backend.iservice;
+
+import ir.ac.kntu.backend.DTO.SliceDTO;
+
+public interface IHomeFeedService {
+
+    // ids of the newest posts across the user's joined communities, newest first;
+    // cursor is the nextCursor of the previous slice, null for the first one
+    SliceDTO<Long> page(Long userId, String cursor, int size);
+}
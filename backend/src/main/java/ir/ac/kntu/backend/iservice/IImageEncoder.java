@@ -0,0 +1,17 @@
+package ir.ac.kntu.backend.iservice;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Encoder SPI for thumbnail renditions. Implementations are Spring beans; the one whose name() matches
+ * thumbnails.encoder is used, so a WebP/AVIF encoder only needs to be added to the context and selected.
+ */
+public interface IImageEncoder {
+
+    String name();
+
+    String contentType();
+
+    byte[] encode(BufferedImage image) throws IOException;
+}
@@ -0,0 +1,12 @@
+package ir.ac.kntu.backend.iservice;
+
+public interface IMembershipService {
+
+    boolean isMember(Long userId, Long communityId);
+
+    // single-row insert, returns false if the user already was a member
+    boolean join(Long userId, Long communityId);
+
+    // single-row delete, returns false if the user was not a member
+    boolean leave(Long userId, Long communityId);
+}
@@ -0,0 +1,29 @@
+package ir.ac.kntu.backend.iservice;
+
+import ir.ac.kntu.backend.DTO.CommentDTO;
+import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.model.VotableType;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface IMyVoteService {
+
+    // the user's vote (+1, -1, or 0 for none) on each target
+    Map<Long, Integer> votesOf(Long userId, VotableType type, Collection<Long> targetIds);
+
+    // the apply methods set myVote for the current user and do nothing for anonymous callers. They change the given
+    // DTOs in place, so they are only for DTOs built for this response; shared (cached) ones go through applyToCopy
+
+    void applyToPosts(Collection<PostDTO> posts);
+
+    PostDTO applyToCopy(PostDTO post);
+
+    void applyToComments(Collection<? extends CommentDTO.Summary> comments);
+
+    // every comment in the given trees
+    void applyToThreads(Collection<CommentDTO.CommentThread> roots);
+
+    // a vote the user just cast, so it shows without a lookup
+    void remember(Long userId, VotableType type, Long targetId, int value);
+}
@@ -0,0 +1,20 @@
+package ir.ac.kntu.backend.iservice;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+
+public interface IPostRankingService {
+
+    // ids of the hottest posts, best first; communityId null means all communities
+    Page<Long> hotPostIds(Long communityId, Pageable pageable);
+
+    // recompute the scores of the given posts from their current rows
+    void refresh(Collection<Long> postIds);
+
+    void remove(Long postId, Long communityId);
+
+    // recompute every ranked feed from the posts inside the ranking window; returns the number of posts ranked
+    int rebuild();
+}
@@ -1,6 +1,7 @@
 package ir.ac.kntu.backend.iservice;
 
 import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -18,6 +19,21 @@ public interface IPostService {
 
     Page<PostDTO> listPosts(Pageable pageable);
 
+    // ranked by the hot score, see IPostRankingService
+    Page<PostDTO> listHotPosts(Pageable pageable);
+
+    Page<PostDTO> listHotPostsByCommunity(Long communityId, Pageable pageable);
+
+    // keyset feeds, newest first; cursor is the nextCursor of the previous slice, null for the first one
+    SliceDTO<PostDTO> listPostsAfter(String cursor, int size);
+
+    SliceDTO<PostDTO> listPostsByCommunityAfter(Long communityId, String cursor, int size);
+
+    SliceDTO<PostDTO> listUserPostsAfter(Long userId, String cursor, int size);
+
+    // newest posts of the communities the current user joined, see IHomeFeedService
+    SliceDTO<PostDTO> listHomeFeed(String cursor, int size);
+
     PostDTO getPost(Long postId);
 
     void deletePost(Long postId);
@@ -29,8 +45,13 @@ public interface IPostService {
 
     Resource streamAttachment(Long postId, Long attachmentId);
 
+    PostDTO.AttachmentContent openAttachment(Long postId, Long attachmentId);
+
     Resource streamAttachmentThumbnail(Long postId, Long attachmentId);
 
+    // width selects the smallest rendition at least that wide, null means the default thumbnail
+    PostDTO.ThumbnailContent openThumbnail(Long postId, Long attachmentId, Integer width);
+
     boolean scheduleThumbnailGenerationForPost(Long postId);
 
 
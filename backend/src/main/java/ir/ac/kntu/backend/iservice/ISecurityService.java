@@ -13,4 +13,7 @@ public interface ISecurityService {
 
     boolean logout();
 
+    // invalidates every token issued to the user so far
+    void revokeAllTokens(Long userId);
+
 }
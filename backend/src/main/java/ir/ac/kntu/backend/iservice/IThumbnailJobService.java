@@ -0,0 +1,28 @@
+package ir.ac.kntu.backend.iservice;
+
+import ir.ac.kntu.backend.model.ThumbnailJob;
+
+import java.util.List;
+
+public interface IThumbnailJobService {
+
+    // queue (or re-queue) thumbnail generation for an attachment, joins the caller's transaction
+    void enqueue(Long attachmentId);
+
+    // lease up to max due jobs to the given worker
+    List<ThumbnailJob> claim(String workerId, int max);
+
+    void complete(ThumbnailJob job);
+
+    // RETRY when the job will run again, FAILED when it has used up its attempts, LEASE_LOST when another worker owns it
+    FailOutcome fail(ThumbnailJob job, String error);
+
+    int releaseExpiredLeases();
+
+    // create jobs for pending attachments that have none, returns the number enqueued
+    int enqueueOrphans(int max);
+
+    long queueDepth();
+
+    enum FailOutcome { RETRY, FAILED, LEASE_LOST }
+}
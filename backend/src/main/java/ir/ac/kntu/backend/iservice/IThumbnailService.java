@@ -10,5 +10,7 @@ public interface IThumbnailService {
 
     byte[] createPlaceholderBytes(int w, int h) throws IOException;
 
+    byte[] createPlaceholderBytes(int w, int h, String label) throws IOException;
+
     byte[] generateImageThumbnail(byte[] original, int targetW, int targetH) throws IOException;
 }
@@ -0,0 +1,15 @@
+package ir.ac.kntu.backend.iservice;
+
+import java.util.Date;
+
+public interface ITokenRevocationService {
+
+    // revokes one token until it would have expired anyway
+    void revokeToken(String jti, Date expiresAt);
+
+    // revokes every token of the user issued before now (password change, disabled account)
+    void revokeAllOf(Long userId);
+
+    // answered from local state only, no network I/O
+    boolean isRevoked(String jti, Long userId, Date issuedAt);
+}
@@ -0,0 +1,23 @@
+package ir.ac.kntu.backend.iservice;
+
+import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.DTO.UploadDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface IUploadService {
+
+    UploadDTO.SessionRs createSession(UploadDTO.SessionCreateRq rq) throws IOException;
+
+    // current offset, for resuming after a dropped connection
+    UploadDTO.SessionRs getSession(String sessionId);
+
+    // sha256Hex is the checksum of this chunk; a mismatching chunk is discarded and the offset stays put
+    UploadDTO.SessionRs appendChunk(String sessionId, long offset, String sha256Hex, InputStream body) throws IOException;
+
+    // stores the assembled file as an attachment of the session's post and queues its thumbnail
+    PostDTO.AttachmentDTO complete(String sessionId) throws IOException;
+
+    void abort(String sessionId) throws IOException;
+}
@@ -2,6 +2,7 @@ package ir.ac.kntu.backend.iservice;
 
 import ir.ac.kntu.backend.DTO.*;
 import ir.ac.kntu.backend.model.ProfilePhoto;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -32,6 +33,7 @@ public interface IUserService {
     ProfilePhotoDTO uploadProfilePhoto(Long userId, MultipartFile file) throws IOException;
     void deleteProfilePhoto(Long userId);
     ProfilePhoto getProfilePhoto(Long userId);
+    Resource downloadProfilePhoto(Long userId);
 
     SearchDTO.SearchRs<UserDTO.UserViewDTO> search(SearchDTO.SearchRq searchRq);
 
@@ -0,0 +1,11 @@
+package ir.ac.kntu.backend.iservice;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+
+public interface IVideoFrameExtractor {
+
+    // JPEG bytes of a single frame near the start of the video
+    byte[] extractFrame(Resource video) throws IOException;
+}
@@ -0,0 +1,16 @@
+package ir.ac.kntu.backend.iservice;
+
+import ir.ac.kntu.backend.model.VotableType;
+
+public interface IVoteAggregationService {
+
+    // fold a committed vote change into the in-memory counters, written to the DB on the next flush;
+    // the net delta is upDelta - downDelta
+    void record(VotableType type, Long targetId, long upDelta, long downDelta);
+
+    // net delta recorded for the target but not flushed yet
+    long pendingDelta(VotableType type, Long targetId);
+
+    // write all pending deltas, returns the number of targets updated
+    int flush();
+}
@@ -12,7 +12,15 @@ import java.util.Set;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_post_parent_created", columnList = "post_id, parent_comment_id, d_created_date, id"),
+        @Index(name = "idx_comments_author_created", columnList = "author_id, d_created_date, id"),
+        @Index(name = "idx_comments_root_depth", columnList = "f_root_comment_id, n_depth, d_created_date, id"),
+        @Index(name = "idx_comments_root_path", columnList = "f_root_comment_id, c_path"),
+        @Index(name = "idx_comments_post_parent_votes", columnList = "post_id, parent_comment_id, n_votes"),
+        @Index(name = "idx_comments_post_parent_best", columnList = "post_id, parent_comment_id, n_best_score"),
+        @Index(name = "idx_comments_post_parent_controversy", columnList = "post_id, parent_comment_id, n_controversy")
+})
 public class Comment extends Auditable implements Votable {
 
     @Id
@@ -28,10 +36,29 @@ public class Comment extends Auditable implements Votable {
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
 
+    // written only by VoteAggregationService's batched relative updates, never by an entity save
     @Builder.Default
-    @Column(name = "n_votes", nullable = false)
+    @Column(name = "n_votes", nullable = false, updatable = false)
     private long votes = 0L;
 
+    // upvote/downvote tallies and the ranking scores derived from them (see CommentScores), written alongside n_votes;
+    // null on rows older than the tallies until CounterReconciliationJob fills them in
+    @Builder.Default
+    @Column(name = "n_upvotes", updatable = false)
+    private Long upvotes = 0L;
+
+    @Builder.Default
+    @Column(name = "n_downvotes", updatable = false)
+    private Long downvotes = 0L;
+
+    @Builder.Default
+    @Column(name = "n_best_score", updatable = false)
+    private Double bestScore = 0.0;
+
+    @Builder.Default
+    @Column(name = "n_controversy", updatable = false)
+    private Double controversy = 0.0;
+
     // the post this comment belongs to
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id", nullable = false)
@@ -49,4 +76,46 @@ public class Comment extends Auditable implements Votable {
     @Column(name = "b_deleted", nullable = false)
     private boolean deleted = false;
 
+    // ------------------------------------- MATERIALIZED PATH ----------------------------------------------------------
+    // set once on insert (legacy rows by CommentPathBackfillJob): the ids of all ancestors, top-level first, as
+    // fixed-width base-36 segments; "" and depth 0 for a top-level comment, whose rootId stays null
+
+    @Column(name = "c_path", length = 512, updatable = false)
+    private String path;
+
+    @Column(name = "n_depth", updatable = false)
+    private Integer depth;
+
+    @Column(name = "f_root_comment_id", updatable = false)
+    private Long rootId;
+
+    public static final int PATH_SEGMENT_WIDTH = 8;
+
+    public static String pathSegment(long id) {
+        String segment = Long.toString(id, 36);
+        return "0".repeat(Math.max(0, PATH_SEGMENT_WIDTH - segment.length())) + segment;
+    }
+
+    // places this comment under the given parent; a parent without a path leaves it to the backfill job
+    public void placeUnder(Comment parent) {
+        if (parent == null) {
+            this.path = "";
+            this.depth = 0;
+            this.rootId = null;
+        } else if (parent.getPath() != null) {
+            this.path = parent.getPath() + pathSegment(parent.getId());
+            this.depth = parent.getDepth() + 1;
+            this.rootId = parent.threadRootId();
+        }
+    }
+
+    // id of the top-level comment this one hangs under (itself when top-level)
+    public Long threadRootId() {
+        return rootId != null ? rootId : id;
+    }
+
+    // every descendant's path starts with this
+    public String descendantPathPrefix() {
+        return path + pathSegment(id);
+    }
 }
@@ -0,0 +1,35 @@
+package ir.ac.kntu.backend.model;
+
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.util.Comparator;
+
+/**
+ * Orderings for comment listings. The Sort ranks top-level comments in the database (each has an index on
+ * post_id, parent_comment_id and its key); the comparator ranks already loaded replies under each parent.
+ * Rows written before the tallies existed have no scores yet and rank as 0 until reconciled.
+ */
+@Getter
+public enum CommentSort {
+    OLD(Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("id")), chronological()),
+    NEW(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id")), chronological().reversed()),
+    TOP(Sort.by(Sort.Order.desc("votes"), Sort.Order.asc("createdAt"), Sort.Order.asc("id")),
+            Comparator.comparingLong(Comment::getVotes).reversed().thenComparing(chronological())),
+    BEST(Sort.by(Sort.Order.desc("bestScore"), Sort.Order.asc("createdAt"), Sort.Order.asc("id")),
+            Comparator.comparingDouble((Comment c) -> c.getBestScore() != null ? c.getBestScore() : 0.0).reversed().thenComparing(chronological())),
+    CONTROVERSIAL(Sort.by(Sort.Order.desc("controversy"), Sort.Order.asc("createdAt"), Sort.Order.asc("id")),
+            Comparator.comparingDouble((Comment c) -> c.getControversy() != null ? c.getControversy() : 0.0).reversed().thenComparing(chronological()));
+
+    private final Sort sort;
+    private final Comparator<Comment> comparator;
+
+    CommentSort(Sort sort, Comparator<Comment> comparator) {
+        this.sort = sort;
+        this.comparator = comparator;
+    }
+
+    private static Comparator<Comment> chronological() {
+        return Comparator.comparing(Comment::getCreatedAt).thenComparing(Comment::getId);
+    }
+}
@@ -36,6 +36,11 @@ public class Community {
     @JoinColumn(name = "owner_id")
     private User owner;
 
+    // maintained by CommunityService through relative updates (drift repaired by CounterReconciliationJob), never by an entity save
+    @Builder.Default
+    @Column(name = "n_member_count", nullable = false, updatable = false)
+    private long memberCount = 0L;
+
     // Members — inverse side of user's joinedCommunities
     @ManyToMany(mappedBy = "joinedCommunities")
     private Set<User> members = new HashSet<>();
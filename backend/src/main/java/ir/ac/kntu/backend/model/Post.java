@@ -12,7 +12,11 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_created", columnList = "d_created_date, id"),
+        @Index(name = "idx_posts_community_created", columnList = "community_id, d_created_date, id"),
+        @Index(name = "idx_posts_author_created", columnList = "author_id, d_created_date, id")
+})
 public class Post extends Auditable implements Votable{
 
     @Id
@@ -25,10 +29,16 @@ public class Post extends Auditable implements Votable{
     @Column(name = "c_content")
     private String content;
 
+    // written only by VoteAggregationService's batched relative updates, never by an entity save
     @Builder.Default
-    @Column(name = "n_votes", nullable = false)
+    @Column(name = "n_votes", nullable = false, updatable = false)
     private long votes = 0L;
 
+    // maintained by CommentService through relative updates (drift repaired by CounterReconciliationJob), never by an entity save
+    @Builder.Default
+    @Column(name = "n_comment_count", nullable = false, updatable = false)
+    private long commentCount = 0L;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
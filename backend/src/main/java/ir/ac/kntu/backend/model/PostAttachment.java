@@ -25,6 +25,11 @@ public class PostAttachment {
     @Column(name = "n_size")
     private Long size;
 
+    // SHA-256 key of the content in the blob store
+    @Column(name = "c_blob_key", length = 64)
+    private String blobKey;
+
+    // legacy inline storage, moved out to the blob store by BlobMigrationJob
     @Lob
     @Column(name = "b_data")
     private byte[] data;
@@ -33,6 +38,10 @@ public class PostAttachment {
     @JoinColumn(name = "post_id")
     private Post post;
 
+    @Column(name = "c_thumbnail_blob_key", length = 64)
+    private String thumbnailBlobKey;
+
+    // legacy inline storage, moved out to the blob store by BlobMigrationJob
     @Lob
     @Column(name = "b_thumbnail")
     private byte[] thumbnailData;
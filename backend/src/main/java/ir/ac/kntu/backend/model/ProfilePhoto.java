@@ -26,6 +26,11 @@ public class ProfilePhoto {
     @Column(name = "n_size")
     private Long size;
 
+    // SHA-256 key of the content in the blob store
+    @Column(name = "c_blob_key", length = 64)
+    private String blobKey;
+
+    // legacy inline storage, moved out to the blob store by BlobMigrationJob
     @Lob
     @Column(name = "b_data")
     private byte[] data;
@@ -0,0 +1,53 @@
+package ir.ac.kntu.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Durable thumbnail work item. PENDING rows are claimable once nextAttemptAt has passed, IN_PROGRESS rows are
+ * leased to a worker until leaseExpiresAt, FAILED rows have used up their attempts. Finished jobs are deleted.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "thumbnail_jobs",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"attachment_id"}),
+        indexes = @Index(name = "idx_thumbnail_jobs_claim", columnList = "c_status, d_next_attempt"))
+public class ThumbnailJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "attachment_id", nullable = false)
+    private Long attachmentId;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(name = "c_status", length = 20, nullable = false)
+    private ThumbnailStatus status = ThumbnailStatus.PENDING;
+
+    @Builder.Default
+    @Column(name = "n_attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "d_next_attempt", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "c_lease_owner", length = 128)
+    private String leaseOwner;
+
+    @Column(name = "d_lease_expires")
+    private Instant leaseExpiresAt;
+
+    @Column(name = "c_last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "d_enqueued", nullable = false)
+    private Instant enqueuedAt;
+}
@@ -0,0 +1,47 @@
+package ir.ac.kntu.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One encoded size of an attachment's thumbnail. The box width identifies the rendition (160, 320, ...);
+ * version is the attachment's thumbnailVersion at the time it was generated.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "thumbnail_renditions",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"attachment_id", "n_box_width"}))
+public class ThumbnailRendition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "attachment_id", nullable = false)
+    private Long attachmentId;
+
+    @Column(name = "n_box_width", nullable = false)
+    private int boxWidth;
+
+    @Column(name = "n_width", nullable = false)
+    private int width;
+
+    @Column(name = "n_height", nullable = false)
+    private int height;
+
+    @Column(name = "c_content_type", length = 64, nullable = false)
+    private String contentType;
+
+    @Column(name = "c_blob_key", length = 64, nullable = false)
+    private String blobKey;
+
+    @Column(name = "n_size", nullable = false)
+    private long size;
+
+    @Column(name = "n_version", nullable = false)
+    private long version;
+}
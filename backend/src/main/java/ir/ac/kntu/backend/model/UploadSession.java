@@ -0,0 +1,54 @@
+package ir.ac.kntu.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * An open resumable upload. The bytes received so far sit in a part file named after the id on the node's upload
+ * directory; receivedBytes is the offset the next chunk must start at. Completing the upload records the created
+ * attachment on the row, so a repeated complete answers with the same attachment; the row is deleted when the upload
+ * is aborted or left idle past expiresAt.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "upload_sessions", indexes = @Index(name = "idx_upload_sessions_expiry", columnList = "d_expires"))
+public class UploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "c_filename", nullable = false)
+    private String filename;
+
+    @Column(name = "c_declared_type", length = 100)
+    private String declaredContentType;
+
+    @Column(name = "n_total_size", nullable = false)
+    private long totalSize;
+
+    @Builder.Default
+    @Column(name = "n_received", nullable = false)
+    private long receivedBytes = 0;
+
+    @Column(name = "d_created", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "d_expires", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "attachment_id")
+    private Long attachmentId;
+}
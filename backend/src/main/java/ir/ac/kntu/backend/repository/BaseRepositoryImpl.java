@@ -2,9 +2,10 @@ package ir.ac.kntu.backend.repository;
 
 
 import lombok.extern.slf4j.Slf4j;
+import ir.ac.kntu.backend.search.ETotalMode;
 import ir.ac.kntu.backend.search.PageRequest;
+import ir.ac.kntu.backend.search.SlicePage;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
@@ -28,19 +29,26 @@ public class BaseRepositoryImpl<T, ID> extends SimpleJpaRepository<T, ID> implem
 
     @Override
     protected <S extends T> Page<S> readPage(TypedQuery<S> query, Class<S> domainClass, Pageable pageable, Specification<S> spec) {
-        if (pageable.isPaged()) {
-            query.setFirstResult((int) pageable.getOffset());
-            query.setMaxResults(pageable.getPageSize());
-        }
-
-        final List<S> list = query.getResultList();
         if (pageable instanceof PageRequest) {
             final PageRequest pageRequest = (PageRequest) pageable;
 
             if (!pageRequest.getCalcTotal()) {
-                return new PageImpl<>(list, pageable, -1);
+                // one row past the page tells whether there is a next one, instead of counting all of them
+                query.setFirstResult((int) pageable.getOffset());
+                query.setMaxResults(pageable.getPageSize() + 1);
+
+                final List<S> list = query.getResultList();
+                final boolean hasNext = list.size() > pageable.getPageSize();
+                return SlicePage.of(hasNext ? list.subList(0, pageable.getPageSize()) : list, pageable, hasNext, ETotalMode.none, 0);
             }
         }
+
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        final List<S> list = query.getResultList();
         return PageableExecutionUtils.getPage(list, pageable,
                 () -> executeCountQuery(getCountQuery(spec, domainClass)));
     }
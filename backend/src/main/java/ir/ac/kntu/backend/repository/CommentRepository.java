@@ -5,10 +5,15 @@ import ir.ac.kntu.backend.model.Post;
 import ir.ac.kntu.backend.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -35,4 +40,56 @@ public interface CommentRepository extends IBaseRepository<Comment, Long> {
     @EntityGraph(attributePaths = {"author"})
     Page<Comment> findByPost_IdAndParentIsNullOrderByCreatedAtAsc(Long postId, Pageable pageable);
 
+    // ordered by the pageable's sort, see CommentSort
+    @EntityGraph(attributePaths = {"author"})
+    Page<Comment> findByPost_IdAndParentIsNull(Long postId, Pageable pageable);
+
+    // slice variants: size+1 rows and no count query
+
+    @EntityGraph(attributePaths = {"author"})
+    Slice<Comment> findSliceByPost_IdAndParentIsNull(Long postId, Pageable pageable);
+
+    Slice<Comment> findSliceByAuthor_IdOrderByCreatedAtDesc(Long authorId, Pageable pageable);
+
+    long countByPost_IdAndParentIsNull(Long postId);
+
+    long countByAuthor_Id(Long authorId);
+
+    // ------------------------------------- THREAD QUERIES -------------------------------------------------------------
+    // one range scan over the materialized path instead of one query per level; parents sort before their children
+
+    @EntityGraph(attributePaths = {"author"})
+    @Query("select c from Comment c where c.rootId in :rootIds and c.depth <= :maxDepth " +
+            "order by c.depth asc, c.createdAt asc, c.id asc")
+    List<Comment> findByThreadRoots(@Param("rootIds") Collection<Long> rootIds, @Param("maxDepth") int maxDepth, Pageable limit);
+
+    @EntityGraph(attributePaths = {"author"})
+    @Query("select c from Comment c where c.rootId = :rootId and c.path like :pathPrefix " +
+            "order by c.depth asc, c.createdAt asc, c.id asc")
+    List<Comment> findSubtree(@Param("rootId") Long rootId, @Param("pathPrefix") String pathPrefix, Pageable limit);
+
+    // ------------------------------------- KEYSET QUERIES -------------------------------------------------------------
+    // seek on (createdAt, id) instead of an offset; top-level comments read oldest first, a user's comments newest first
+
+    @EntityGraph(attributePaths = {"author"})
+    @Query("select c from Comment c where c.post.id = :postId and c.parent is null order by c.createdAt asc, c.id asc")
+    List<Comment> findTopLevelFirst(@Param("postId") Long postId, Pageable limit);
+
+    @EntityGraph(attributePaths = {"author"})
+    @Query("select c from Comment c where c.post.id = :postId and c.parent is null " +
+            "and (c.createdAt > :createdAt or (c.createdAt = :createdAt and c.id > :id)) " +
+            "order by c.createdAt asc, c.id asc")
+    List<Comment> findTopLevelAfter(@Param("postId") Long postId, @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id, Pageable limit);
+
+    @EntityGraph(attributePaths = {"author"})
+    @Query("select c from Comment c where c.author.id = :authorId order by c.createdAt desc, c.id desc")
+    List<Comment> findByAuthorFirst(@Param("authorId") Long authorId, Pageable limit);
+
+    @EntityGraph(attributePaths = {"author"})
+    @Query("select c from Comment c where c.author.id = :authorId " +
+            "and (c.createdAt < :createdAt or (c.createdAt = :createdAt and c.id < :id)) " +
+            "order by c.createdAt desc, c.id desc")
+    List<Comment> findByAuthorAfter(@Param("authorId") Long authorId, @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id, Pageable limit);
 }
@@ -1,8 +1,37 @@
 package ir.ac.kntu.backend.repository;
 
 import ir.ac.kntu.backend.model.CommunityImage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CommunityImageRepository extends IBaseRepository<CommunityImage, Long> {
+
+    // id and size of each given community's avatar, without loading the image entity
+    @Query("select c.id as ownerId, i.id as id, i.size as size from Community c join c.avatarImage i where c.id in :communityIds")
+    List<ImageMeta> findAvatarMetaByCommunityIdIn(@Param("communityIds") Collection<Long> communityIds);
+
+    // rows still holding inline LOB data that has to be moved to the blob store
+    @Query("select i.id from CommunityImage i where i.id > :after and i.blobKey is null and i.data is not null order by i.id")
+    List<Long> findIdsWithInlineData(@Param("after") Long after, Pageable pageable);
+
+    @Query("select i.data from CommunityImage i where i.id = :id")
+    byte[] findDataById(@Param("id") Long id);
+
+    // touches only the payload columns, and only while the row has not been moved yet
+    @Modifying
+    @Query("update CommunityImage i set i.blobKey = :blobKey, i.data = null where i.id = :id and i.blobKey is null")
+    int moveDataToBlob(@Param("id") Long id, @Param("blobKey") String blobKey);
+
+    interface ImageMeta {
+        Long getOwnerId();
+        Long getId();
+        Long getSize();
+    }
 }
@@ -3,9 +3,14 @@ package ir.ac.kntu.backend.repository;
 import ir.ac.kntu.backend.model.Community;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,6 +23,51 @@ public interface CommunityRepository extends IBaseRepository<Community, Long> {
     // All communities a user is a member of (by user id)
     Page<Community> findByMembers_Id(Long userId, Pageable pageable);
 
+    // slice variants: size+1 rows and no count query
+
+    @Query("select c from Community c")
+    Slice<Community> findSlice(Pageable pageable);
+
+    Slice<Community> findSliceByOwner_Id(Long ownerId, Pageable pageable);
+
+    Slice<Community> findSliceByMembers_Id(Long userId, Pageable pageable);
+
+    long countByOwner_Id(Long ownerId);
+
+    long countByMembers_Id(Long userId);
+
+    // ------------------------------------- KEYSET QUERIES -------------------------------------------------------------
+    // communities only carry a creation date, so they are walked in id order, which is creation order as well;
+    // afterId 0 starts from the beginning
+
+    @Query("select c from Community c where c.id > :afterId order by c.id asc")
+    List<Community> findAfter(@Param("afterId") Long afterId, Pageable limit);
+
+    @Query("select c from Community c where c.owner.id = :ownerId and c.id > :afterId order by c.id asc")
+    List<Community> findByOwnerAfter(@Param("ownerId") Long ownerId, @Param("afterId") Long afterId, Pageable limit);
+
+    @Query("select c from Community c join c.members m where m.id = :userId and c.id > :afterId order by c.id asc")
+    List<Community> findByMemberAfter(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable limit);
+
     @EntityGraph(attributePaths = {"owner", "posts", "members"})
     Optional<Community> findWithPostsAndMembersById(Long id);
+
+    // relative update, so concurrent joins/leaves never overwrite each other's change
+    @Modifying
+    @Query(value = "UPDATE communities SET n_member_count = n_member_count + :delta WHERE id = :id", nativeQuery = true)
+    int addToMemberCount(@Param("id") Long id, @Param("delta") long delta);
+
+    // ------------------------------------- MEMBERSHIP -----------------------------------------------------------------
+    // direct statements on the join table (PK user_id, community_id) so membership never hydrates member sets
+
+    @Query(value = "SELECT community_id FROM t_user_joined_communities WHERE user_id = :userId", nativeQuery = true)
+    List<Long> findJoinedCommunityIds(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO t_user_joined_communities (user_id, community_id) VALUES (:userId, :communityId)", nativeQuery = true)
+    int insertMembership(@Param("userId") Long userId, @Param("communityId") Long communityId);
+
+    @Modifying
+    @Query(value = "DELETE FROM t_user_joined_communities WHERE user_id = :userId AND community_id = :communityId", nativeQuery = true)
+    int deleteMembership(@Param("userId") Long userId, @Param("communityId") Long communityId);
 }
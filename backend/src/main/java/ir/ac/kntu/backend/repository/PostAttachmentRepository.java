@@ -1,7 +1,13 @@
 package ir.ac.kntu.backend.repository;
 
 import ir.ac.kntu.backend.model.PostAttachment;
+import ir.ac.kntu.backend.model.ThumbnailStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,5 +18,93 @@ public interface PostAttachmentRepository extends IBaseRepository<PostAttachment
     // find single attachment ensuring it belongs to specific post (optional helper)
     Optional<PostAttachment> findByIdAndPost_Id(Long id, Long postId);
 
+    // metadata-only reads: these never select b_data / b_thumbnail
 
+    @Query(ATTACHMENT_META + "where a.id = :id and a.post.id = :postId")
+    Optional<AttachmentMeta> findMetaByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    @Query(ATTACHMENT_META + "where a.id = :id")
+    Optional<AttachmentMeta> findMetaById(@Param("id") Long id);
+
+    @Query(ATTACHMENT_META + "where a.post.id in :postIds order by a.id")
+    List<AttachmentMeta> findMetaByPostIdIn(@Param("postIds") Collection<Long> postIds);
+
+    @Query(THUMBNAIL_META + "where a.id = :id and a.post.id = :postId")
+    Optional<ThumbnailMeta> findThumbnailMetaByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    @Query(THUMBNAIL_META + "where a.post.id = :postId")
+    List<ThumbnailMeta> findThumbnailMetaByPostId(@Param("postId") Long postId);
+
+    // legacy inline payloads, only read for rows not yet moved to the blob store
+
+    @Query("select a.data from PostAttachment a where a.id = :id")
+    byte[] findDataById(@Param("id") Long id);
+
+    @Query("select a.thumbnailData from PostAttachment a where a.id = :id")
+    byte[] findThumbnailDataById(@Param("id") Long id);
+
+    // image/video attachments waiting for a thumbnail that have no job queued (e.g. enqueued before the job table existed)
+    @Query("select a.id from PostAttachment a where a.thumbnailStatus in :statuses " +
+            "and (a.contentType like 'image/%' or a.contentType like 'video/%') " +
+            "and not exists (select j.id from ThumbnailJob j where j.attachmentId = a.id) order by a.id")
+    List<Long> findIdsMissingThumbnailJob(@Param("statuses") Collection<ThumbnailStatus> statuses, Pageable pageable);
+
+    @Modifying
+    @Query("update PostAttachment a set a.thumbnailStatus = :status where a.id = :id")
+    int updateThumbnailStatus(@Param("id") Long id, @Param("status") ThumbnailStatus status);
+
+    // a null blob key keeps the current default thumbnail
+    @Modifying
+    @Query("update PostAttachment a set a.thumbnailStatus = :status, a.thumbnailVersion = :version, " +
+            "a.thumbnailBlobKey = coalesce(:blobKey, a.thumbnailBlobKey), a.thumbnailSize = coalesce(:size, a.thumbnailSize), " +
+            "a.thumbnailData = null where a.id = :id")
+    int storeThumbnail(@Param("id") Long id, @Param("status") ThumbnailStatus status, @Param("version") Long version,
+                       @Param("blobKey") String blobKey, @Param("size") Long size);
+
+    // rows still holding inline LOB data that has to be moved to the blob store
+    @Query("select a.id from PostAttachment a where a.id > :after and ((a.blobKey is null and a.data is not null) " +
+            "or (a.thumbnailBlobKey is null and a.thumbnailData is not null)) order by a.id")
+    List<Long> findIdsWithInlineData(@Param("after") Long after, Pageable pageable);
+
+    // these touch only the payload columns, so a thumbnail job finishing meanwhile is not overwritten
+
+    @Modifying
+    @Query("update PostAttachment a set a.blobKey = :blobKey, a.data = null where a.id = :id and a.blobKey is null")
+    int moveDataToBlob(@Param("id") Long id, @Param("blobKey") String blobKey);
+
+    @Modifying
+    @Query("update PostAttachment a set a.thumbnailBlobKey = :blobKey, a.thumbnailData = null " +
+            "where a.id = :id and a.thumbnailBlobKey is null and a.thumbnailData is not null")
+    int moveThumbnailToBlob(@Param("id") Long id, @Param("blobKey") String blobKey);
+
+    String ATTACHMENT_META = "select a.id as id, a.post.id as postId, a.filename as filename, a.contentType as contentType, " +
+            "a.size as size, a.blobKey as blobKey, a.thumbnailStatus as thumbnailStatus, a.thumbnailVersion as thumbnailVersion " +
+            "from PostAttachment a ";
+
+    String THUMBNAIL_META = "select a.id as id, a.post.id as postId, a.contentType as contentType, a.thumbnailStatus as thumbnailStatus, " +
+            "a.thumbnailVersion as thumbnailVersion, a.thumbnailBlobKey as thumbnailBlobKey, a.thumbnailSize as thumbnailSize, " +
+            "(case when a.thumbnailData is not null then true else false end) as inlineThumbnail " +
+            "from PostAttachment a ";
+
+    interface AttachmentMeta {
+        Long getId();
+        Long getPostId();
+        String getFilename();
+        String getContentType();
+        Long getSize();
+        String getBlobKey();
+        ThumbnailStatus getThumbnailStatus();
+        Long getThumbnailVersion();
+    }
+
+    interface ThumbnailMeta {
+        Long getId();
+        Long getPostId();
+        String getContentType();
+        ThumbnailStatus getThumbnailStatus();
+        Long getThumbnailVersion();
+        String getThumbnailBlobKey();
+        Long getThumbnailSize();
+        boolean isInlineThumbnail();  // thumbnail still stored in b_thumbnail
+    }
 }
@@ -5,10 +5,16 @@ import ir.ac.kntu.backend.model.Community;
 import ir.ac.kntu.backend.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,4 +35,102 @@ public interface PostRepository extends IBaseRepository<Post, Long> {
     List<Post> findTop20ByOrderByCreatedAtDesc();
 
     Page<Post> findByCommunity_IdOrderByCreatedAtDesc(Long communityId, Pageable pageable);
+
+    // relative update, so concurrent comments never overwrite each other's increment
+    @Modifying
+    @Query(value = "UPDATE posts SET n_comment_count = n_comment_count + :delta WHERE id = :id", nativeQuery = true)
+    int addToCommentCount(@Param("id") Long id, @Param("delta") long delta);
+
+    // ------------------------------------- FEED QUERIES ---------------------------------------------------------------
+    // fetch everything toFeedPostDTO touches in the page query itself; attachments, profile photos and community
+    // avatars are added by PostService with one grouped query each, so no image entity (or its LOB) is loaded
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    @Query("select p from Post p")
+    Page<Post> findFeed(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    Page<Post> findFeedByAuthor_IdOrderByCreatedAtDesc(Long authorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    Page<Post> findFeedByCommunity_IdOrderByCreatedAtDesc(Long communityId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    Optional<Post> findFeedById(Long id);
+
+    // slice variants of the feeds above: size+1 rows and no count query
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    @Query("select p from Post p")
+    Slice<Post> findFeedSlice(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    Slice<Post> findFeedSliceByAuthor_IdOrderByCreatedAtDesc(Long authorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    Slice<Post> findFeedSliceByCommunity_IdOrderByCreatedAtDesc(Long communityId, Pageable pageable);
+
+    long countByAuthor_Id(Long authorId);
+
+    long countByCommunity_Id(Long communityId);
+
+    // ------------------------------------- KEYSET FEED QUERIES --------------------------------------------------------
+    // newest first on (createdAt, id); the first page has no position to seek from, later pages continue strictly
+    // after the last row the client saw, so each page is an index range scan whatever its depth
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    @Query("select p from Post p order by p.createdAt desc, p.id desc")
+    List<Post> findFeedFirst(Pageable limit);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    @Query("select p from Post p where p.createdAt < :createdAt or (p.createdAt = :createdAt and p.id < :id) " +
+            "order by p.createdAt desc, p.id desc")
+    List<Post> findFeedAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable limit);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    @Query("select p from Post p where p.community.id = :communityId order by p.createdAt desc, p.id desc")
+    List<Post> findFeedByCommunityFirst(@Param("communityId") Long communityId, Pageable limit);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    @Query("select p from Post p where p.community.id = :communityId " +
+            "and (p.createdAt < :createdAt or (p.createdAt = :createdAt and p.id < :id)) " +
+            "order by p.createdAt desc, p.id desc")
+    List<Post> findFeedByCommunityAfter(@Param("communityId") Long communityId, @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id, Pageable limit);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    @Query("select p from Post p where p.author.id = :authorId order by p.createdAt desc, p.id desc")
+    List<Post> findFeedByAuthorFirst(@Param("authorId") Long authorId, Pageable limit);
+
+    @EntityGraph(attributePaths = {"author", "community"})
+    @Query("select p from Post p where p.author.id = :authorId " +
+            "and (p.createdAt < :createdAt or (p.createdAt = :createdAt and p.id < :id)) " +
+            "order by p.createdAt desc, p.id desc")
+    List<Post> findFeedByAuthorAfter(@Param("authorId") Long authorId, @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id, Pageable limit);
+
+    // posts listed by id (ranked feeds); the caller restores the order
+    @EntityGraph(attributePaths = {"author", "community"})
+    List<Post> findFeedByIdIn(Collection<Long> ids);
+
+    // ------------------------------------- RANKING QUERIES ------------------------------------------------------------
+    // only the columns the hot score is computed from
+
+    String RANKING_INPUT = "select p.id as id, p.community.id as communityId, p.votes as votes, " +
+            "p.commentCount as commentCount, p.createdAt as createdAt from Post p ";
+
+    @Query(RANKING_INPUT + "where p.id in :ids")
+    List<RankingInput> findRankingInputByIdIn(@Param("ids") Collection<Long> ids);
+
+    // id-ordered batches of the posts created since the given time
+    @Query(RANKING_INPUT + "where p.createdAt >= :since and p.id > :afterId order by p.id")
+    List<RankingInput> findRankingInputSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId, Pageable limit);
+
+    interface RankingInput {
+        Long getId();
+        Long getCommunityId();
+        long getVotes();
+        long getCommentCount();
+        LocalDateTime getCreatedAt();
+    }
 }
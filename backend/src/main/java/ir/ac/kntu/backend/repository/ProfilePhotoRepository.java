@@ -2,9 +2,37 @@ package ir.ac.kntu.backend.repository;
 
 import ir.ac.kntu.backend.model.ProfilePhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ProfilePhotoRepository extends IBaseRepository<ProfilePhoto, Long> {
-    // Add custom search methods if you store photos by filename, owner, etc.
+
+    // id and size of each given user's photo, without loading the photo entity
+    @Query("select u.id as ownerId, p.id as id, p.size as size from User u join u.profilePhoto p where u.id in :userIds")
+    List<ImageMeta> findMetaByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // rows still holding inline LOB data that has to be moved to the blob store
+    @Query("select i.id from ProfilePhoto i where i.id > :after and i.blobKey is null and i.data is not null order by i.id")
+    List<Long> findIdsWithInlineData(@Param("after") Long after, Pageable pageable);
+
+    @Query("select i.data from ProfilePhoto i where i.id = :id")
+    byte[] findDataById(@Param("id") Long id);
+
+    // touches only the payload columns, and only while the row has not been moved yet
+    @Modifying
+    @Query("update ProfilePhoto i set i.blobKey = :blobKey, i.data = null where i.id = :id and i.blobKey is null")
+    int moveDataToBlob(@Param("id") Long id, @Param("blobKey") String blobKey);
+
+    interface ImageMeta {
+        Long getOwnerId();
+        Long getId();
+        Long getSize();
+    }
 }
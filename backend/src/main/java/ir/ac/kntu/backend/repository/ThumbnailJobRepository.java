@@ -0,0 +1,39 @@
+package ir.ac.kntu.backend.repository;
+
+import ir.ac.kntu.backend.model.ThumbnailJob;
+import ir.ac.kntu.backend.model.ThumbnailStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface ThumbnailJobRepository extends IBaseRepository<ThumbnailJob, Long> {
+
+    Optional<ThumbnailJob> findByAttachmentId(Long attachmentId);
+
+    long countByStatus(ThumbnailStatus status);
+
+    // lock timeout -2 is Hibernate's SKIP LOCKED, so concurrent workers claim disjoint rows instead of waiting
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select j from ThumbnailJob j where j.status = :status and j.nextAttemptAt <= :now order by j.nextAttemptAt")
+    List<ThumbnailJob> findClaimable(@Param("status") ThumbnailStatus status, @Param("now") Instant now, Pageable pageable);
+
+    @Modifying
+    @Query("update ThumbnailJob j set j.status = :pending, j.leaseOwner = null, j.leaseExpiresAt = null " +
+            "where j.status = :inProgress and j.leaseExpiresAt < :now")
+    int releaseExpiredLeases(@Param("pending") ThumbnailStatus pending, @Param("inProgress") ThumbnailStatus inProgress,
+                             @Param("now") Instant now);
+
+    @Modifying
+    @Query("delete from ThumbnailJob j where j.id = :id and j.leaseOwner = :owner")
+    int deleteLeased(@Param("id") Long id, @Param("owner") String owner);
+}
@@ -0,0 +1,10 @@
+package ir.ac.kntu.backend.repository;
+
+import ir.ac.kntu.backend.model.ThumbnailRendition;
+
+import java.util.List;
+
+public interface ThumbnailRenditionRepository extends IBaseRepository<ThumbnailRendition, Long> {
+
+    List<ThumbnailRendition> findByAttachmentIdOrderByBoxWidthAsc(Long attachmentId);
+}
@@ -0,0 +1,31 @@
+package ir.ac.kntu.backend.repository;
+
+import ir.ac.kntu.backend.model.UploadSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadSessionRepository extends IBaseRepository<UploadSession, String> {
+
+    Optional<UploadSession> findByIdAndOwnerId(String id, Long ownerId);
+
+    @Query("select s.id from UploadSession s where s.expiresAt < :now")
+    List<String> findExpiredIds(@Param("now") Instant now, Pageable pageable);
+
+    // compare-and-set on the offset, so two racing chunks for the same offset cannot both be accepted
+    @Modifying
+    @Query("update UploadSession s set s.receivedBytes = :received, s.expiresAt = :expiresAt " +
+            "where s.id = :id and s.receivedBytes = :expected")
+    int advance(@Param("id") String id, @Param("expected") long expected, @Param("received") long received,
+                @Param("expiresAt") Instant expiresAt);
+
+    // only one complete may attach the upload; a concurrent one blocks on the row lock and then matches nothing
+    @Modifying
+    @Query("update UploadSession s set s.attachmentId = :attachmentId where s.id = :id and s.attachmentId is null")
+    int claim(@Param("id") String id, @Param("attachmentId") Long attachmentId);
+}
@@ -0,0 +1,70 @@
+package ir.ac.kntu.backend.search;
+
+import ir.ac.kntu.backend.CustomException;
+import ir.ac.kntu.backend.error.PagingErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset position: the sort key values of the last row a client has seen, each one url-safe base64 encoded
+ * and joined with dots. Feeds use (createdAt, id); SearchUtil uses the requested sort properties followed by id.
+ */
+public final class Cursor {
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	private final List<String> values;
+
+	private Cursor(List<String> values) {
+		this.values = values;
+	}
+
+	public static String encode(Object... values) {
+		StringBuilder token = new StringBuilder();
+		for (Object value : values) {
+			if (token.length() > 0) token.append('.');
+			token.append(ENCODER.encodeToString(String.valueOf(value).getBytes(StandardCharsets.UTF_8)));
+		}
+		return token.toString();
+	}
+
+	public static Cursor decode(String token, int size) {
+		List<String> values = new ArrayList<>(size);
+		try {
+			for (String part : token.split("\\.", -1)) {
+				values.add(new String(DECODER.decode(part), StandardCharsets.UTF_8));
+			}
+		} catch (IllegalArgumentException ex) {
+			throw new CustomException(PagingErrorCode.InvalidCursor, token);
+		}
+		if (values.size() != size) throw new CustomException(PagingErrorCode.InvalidCursor, token);
+		return new Cursor(values);
+	}
+
+	// ------------------------------
+
+	public String get(int index) {
+		return values.get(index);
+	}
+
+	public Long getLong(int index) {
+		try {
+			return Long.valueOf(values.get(index));
+		} catch (NumberFormatException ex) {
+			throw new CustomException(PagingErrorCode.InvalidCursor, values.get(index));
+		}
+	}
+
+	public LocalDateTime getDateTime(int index) {
+		try {
+			return LocalDateTime.parse(values.get(index));
+		} catch (DateTimeParseException ex) {
+			throw new CustomException(PagingErrorCode.InvalidCursor, values.get(index));
+		}
+	}
+}
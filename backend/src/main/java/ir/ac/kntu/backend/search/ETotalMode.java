@@ -0,0 +1,6 @@
+package ir.ac.kntu.backend.search;
+
+// how a paged list accounts for its total: counted, not at all (hasNext only), or taken from a short-lived cached count
+public enum ETotalMode {
+	exact, none, approximate
+}
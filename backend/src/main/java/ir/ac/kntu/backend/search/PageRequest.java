@@ -8,13 +8,22 @@ public class PageRequest implements Pageable {
 	private final Integer startIndex;
 	private final Integer count;
 	@Getter
-    private final Boolean calcTotal;
+	private final ETotalMode totalMode;
+	private final Sort sort;
 
 	public PageRequest(Integer startIndex, Integer count) {
 		this(startIndex, count, true);
 	}
 
 	public PageRequest(Integer startIndex, Integer count, Boolean calcTotal) {
+		this(startIndex, count, Boolean.FALSE.equals(calcTotal) ? ETotalMode.none : ETotalMode.exact);
+	}
+
+	public PageRequest(Integer startIndex, Integer count, ETotalMode totalMode) {
+		this(startIndex, count, totalMode, Sort.unsorted());
+	}
+
+	public PageRequest(Integer startIndex, Integer count, ETotalMode totalMode, Sort sort) {
 		if (startIndex == null || startIndex < 0) {
 			throw new RuntimeException("Invalid startIndex: " + startIndex);
 		}
@@ -24,12 +33,28 @@ public class PageRequest implements Pageable {
 
 		this.startIndex = startIndex;
 		this.count = count;
-		this.calcTotal = calcTotal;
+		this.totalMode = totalMode != null ? totalMode : ETotalMode.exact;
+		this.sort = sort != null ? sort : Sort.unsorted();
+	}
+
+	public static PageRequest of(int page, int size, ETotalMode totalMode) {
+		if (page < 0) {
+			throw new RuntimeException("Invalid page: " + page);
+		}
+		return new PageRequest(page * size, size, totalMode);
+	}
+
+	public PageRequest withSort(Sort sort) {
+		return new PageRequest(startIndex, count, totalMode, sort);
+	}
+
+	public Boolean getCalcTotal() {
+		return totalMode == ETotalMode.exact;
 	}
 
     @Override
 	public int getPageNumber() {
-		return 0;
+		return startIndex / count;
 	}
 
 	@Override
@@ -44,7 +69,7 @@ public class PageRequest implements Pageable {
 
 	@Override
 	public Sort getSort() {
-		return Sort.unsorted();
+		return sort;
 	}
 
 	@Override
@@ -69,6 +94,6 @@ public class PageRequest implements Pageable {
 
 	@Override
 	public boolean hasPrevious() {
-		throw new RuntimeException("NA");
+		return startIndex > 0;
 	}
 }
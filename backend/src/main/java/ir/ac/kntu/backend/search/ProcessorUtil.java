@@ -85,6 +85,14 @@ public abstract class ProcessorUtil {
 			return value.trim();
 		}
 
+		if (cls.equals(Long.class) || cls.equals(long.class)) {
+			return Long.valueOf(value.trim());
+		}
+
+		if (cls.equals(Integer.class) || cls.equals(int.class)) {
+			return Integer.valueOf(value.trim());
+		}
+
 		if (cls.equals(BigDecimal.class)) {
 			return new BigDecimal(value);
 		}
@@ -1,14 +1,26 @@
 package ir.ac.kntu.backend.search;
 
 import ir.ac.kntu.backend.DTO.SearchDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 public class SearchUtil {
 
+	private static final String ID = "id";
+
 	public static <E, D> SearchDTO.SearchRs<D> search(
 		JpaSpecificationExecutor<E> repository,
 		SearchDTO.SearchRq searchRq,
@@ -16,19 +28,97 @@ public class SearchUtil {
 		return search(repository, searchRq, true, entityToDTO);
 	}
 
+	/*
+	 * With a cursor the page continues strictly after the row it was taken from (startIndex is ignored and no total
+	 * is counted), so deep pages cost the same as the first one. Sorts always end in id, which keeps both offset
+	 * and keyset pages stable when sort values tie.
+	 */
 	public static <E, D> SearchDTO.SearchRs<D> search(
 		JpaSpecificationExecutor<E> repository,
 		SearchDTO.SearchRq searchRq,
 		Boolean calcTotal,
 		Function<E, D> entityToDTO) {
 
-		final SearchSpecification<E> specification = new SearchSpecification<>(searchRq.getFilter(), searchRq.getSorts(), searchRq.getDistinct());
-		final Page<E> page = repository.findAll(specification, new PageRequest(searchRq.getStartIndex(), searchRq.getCount(), calcTotal));
+		final List<SortExpression> sorts = withIdTiebreak(searchRq.getSorts());
+		final boolean seek = searchRq.getCursor() != null && !searchRq.getCursor().isBlank();
+
+		Specification<E> specification = new SearchSpecification<>(searchRq.getFilter(), sorts, searchRq.getDistinct());
+		if (seek) {
+			specification = specification.and(new SeekSpecification<>(sorts, Cursor.decode(searchRq.getCursor(), sorts.size())));
+		}
+
+		final Page<E> page = repository.findAll(specification,
+			new PageRequest(seek ? 0 : searchRq.getStartIndex(), searchRq.getCount(), calcTotal && !seek));
 
-		return new SearchDTO.SearchRs<>(
+		final SearchDTO.SearchRs<D> rs = new SearchDTO.SearchRs<>(
 			page.getContent().stream().map(entityToDTO).collect(Collectors.toList()),
 			page.getTotalElements()
 		);
+		final boolean more = page instanceof SlicePage ? page.hasNext() : page.getNumberOfElements() == searchRq.getCount();
+		if (more) {
+			rs.setNextCursor(cursorOf(page.getContent().get(page.getNumberOfElements() - 1), sorts));
+		}
+		return rs;
 	}
 
+	// ------------------------------
+
+	/**
+	 * Limit for a keyset query: one row more than the page, so the caller knows whether another page follows.
+	 */
+	public static Pageable limit(int size) {
+		return new PageRequest(0, size + 1, false);
+	}
+
+	public static <E, D> SliceDTO<D> slice(List<E> rows, int size, Function<E, D> entityToDTO, Function<E, String> cursorOf) {
+		final boolean hasNext = rows.size() > size;
+		final List<E> content = hasNext ? rows.subList(0, size) : rows;
+
+		return new SliceDTO<>(
+			content.stream().map(entityToDTO).collect(Collectors.toList()),
+			hasNext,
+			hasNext ? cursorOf.apply(content.get(content.size() - 1)) : null
+		);
+	}
+
+	/**
+	 * Reads a page the way its Pageable asks for: counted when it is not a search PageRequest or wants an exact
+	 * total, otherwise as a slice of size+1 rows with the total left out or estimated.
+	 */
+	public static <E> Page<E> page(Pageable pageable, Function<Pageable, Page<E>> counted,
+								   Function<Pageable, Slice<E>> uncounted, LongSupplier estimate) {
+		final ETotalMode mode = pageable instanceof PageRequest ? ((PageRequest) pageable).getTotalMode() : ETotalMode.exact;
+		if (mode == ETotalMode.exact) {
+			return counted.apply(pageable);
+		}
+
+		final Slice<E> slice = uncounted.apply(pageable);
+		final long total = mode == ETotalMode.approximate && slice.hasNext() ? estimate.getAsLong() : 0;
+		return SlicePage.of(slice.getContent(), pageable, slice.hasNext(), mode, total);
+	}
+
+	// ------------------------------
+
+	private static List<SortExpression> withIdTiebreak(List<SortExpression> sorts) {
+		final List<SortExpression> result = sorts != null ? new ArrayList<>(sorts) : new ArrayList<>();
+		if (result.stream().noneMatch(s -> ID.equals(s.getProperty()))) {
+			result.add(new SortExpression(ID));
+		}
+		return result;
+	}
+
+	// null when a sort value is missing or sits behind a collection; such a page can only be continued by offset
+	private static String cursorOf(Object entity, List<SortExpression> sorts) {
+		final BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+		final Object[] values = new Object[sorts.size()];
+		try {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = wrapper.getPropertyValue(sorts.get(i).getProperty());
+				if (values[i] == null) return null;
+			}
+		} catch (BeansException ex) {
+			return null;
+		}
+		return Cursor.encode(values);
+	}
 }
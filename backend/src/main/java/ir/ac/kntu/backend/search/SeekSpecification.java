@@ -0,0 +1,60 @@
+package ir.ac.kntu.backend.search;
+
+import ir.ac.kntu.backend.CustomException;
+import ir.ac.kntu.backend.error.PagingErrorCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.*;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static ir.ac.kntu.backend.search.ProcessorUtil.convertSingleValue;
+import static ir.ac.kntu.backend.search.ProcessorUtil.findPath;
+import static ir.ac.kntu.backend.search.SortExpression.EMode.Asc;
+
+/**
+ * Keyset predicate for the rows strictly after a cursor in the given sort order:
+ * (s1 > v1) or (s1 = v1 and s2 > v2) or ..., with the comparison flipped for descending sorts.
+ */
+@RequiredArgsConstructor
+public class SeekSpecification<T> implements Specification<T> {
+	private final List<SortExpression> sorts;
+	private final Cursor cursor;
+
+	// ------------------------------
+
+	@Override
+	public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+		Predicate result = null;
+		Predicate equalPrefix = null;
+
+		for (int i = 0; i < sorts.size(); i++) {
+			final SortExpression sort = sorts.get(i);
+			final Path path = findPath(root, sort.getProperty());
+			final Comparable value = cursorValue(cursor.get(i), path);
+
+			Predicate step = sort.getMode() == Asc ? builder.greaterThan(path, value) : builder.lessThan(path, value);
+			if (equalPrefix != null) {
+				step = builder.and(equalPrefix, step);
+			}
+			result = result == null ? step : builder.or(result, step);
+
+			final Predicate equal = builder.equal(path, value);
+			equalPrefix = equalPrefix == null ? equal : builder.and(equalPrefix, equal);
+		}
+
+		return result;
+	}
+
+	// ------------------------------
+
+	// a tampered or stale cursor is the client's error, like in Cursor.getLong/getDateTime
+	private static Comparable cursorValue(String value, Path<?> path) {
+		try {
+			return convertSingleValue(value, path);
+		} catch (NumberFormatException | DateTimeParseException ex) {
+			throw new CustomException(PagingErrorCode.InvalidCursor, value);
+		}
+	}
+}
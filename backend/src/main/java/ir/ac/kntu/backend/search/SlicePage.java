@@ -0,0 +1,46 @@
+package ir.ac.kntu.backend.search;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page read without a COUNT(*). hasNext comes from the one extra row the query fetched; totalElements is either
+ * the least total consistent with that (none) or a cached estimate raised to it (approximate).
+ */
+public class SlicePage<T> extends PageImpl<T> {
+	private final boolean next;
+	private final ETotalMode totalMode;
+
+	public SlicePage(List<T> content, Pageable pageable, boolean hasNext, long total, ETotalMode totalMode) {
+		super(content, pageable, total);
+		this.next = hasNext;
+		this.totalMode = totalMode;
+	}
+
+	public static <T> SlicePage<T> of(List<T> content, Pageable pageable, boolean hasNext, ETotalMode totalMode, long estimate) {
+		final long seen = pageable.getOffset() + content.size();
+		final long total = !hasNext ? seen : totalMode == ETotalMode.approximate ? Math.max(estimate, seen + 1) : seen + 1;
+		return new SlicePage<>(content, pageable, hasNext, total, totalMode);
+	}
+
+	// ------------------------------
+
+	@Override
+	@JsonProperty("hasNext")
+	public boolean hasNext() {
+		return next;
+	}
+
+	public ETotalMode getTotalMode() {
+		return totalMode;
+	}
+
+	@Override
+	public <U> SlicePage<U> map(Function<? super T, ? extends U> converter) {
+		return new SlicePage<>(getConvertedContent(converter), getPageable(), next, getTotalElements(), totalMode);
+	}
+}
@@ -0,0 +1,28 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.config.CacheConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Totals for lists paged with ETotalMode.approximate. A count is run at most once per key and cache lifetime
+ * (shared across nodes through the two-level cache) and is never evicted on writes, so it trails by up to the
+ * "approximate-counts" TTL.
+ */
+@Component
+@RequiredArgsConstructor
+public class ApproximateCounts {
+
+    private final CacheManager cacheManager;
+
+    public long get(String key, LongSupplier count) {
+        Cache cache = cacheManager.getCache(CacheConfig.COUNTS);
+        if (cache == null) return count.getAsLong();
+        Long value = cache.get(key, count::getAsLong);
+        return value != null ? value : 0L;
+    }
+}
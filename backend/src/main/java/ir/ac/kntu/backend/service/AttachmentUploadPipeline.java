@@ -0,0 +1,93 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.ContentTypeDetector;
+import ir.ac.kntu.backend.CustomException;
+import ir.ac.kntu.backend.config.UploadProperties;
+import ir.ac.kntu.backend.error.PostAttachmentError;
+import ir.ac.kntu.backend.iservice.IBlobStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads an uploaded part exactly once. The type is sniffed from the buffered head of the stream (the detector
+ * marks and resets it), then the same stream is hashed and written by the blob store while a counting wrapper
+ * enforces the per-type size limit on the bytes actually received. Memory use is the sniff buffer plus the copy buffer,
+ * whatever the file size. Runs outside any transaction; callers insert the metadata afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+public class AttachmentUploadPipeline {
+
+    // Tika's magic detection looks at no more than the first 64 KB
+    private static final int SNIFF_BUFFER_BYTES = 64 * 1024;
+
+    private final ContentTypeDetector contentTypeDetector;
+    private final IBlobStore blobStore;
+    private final UploadProperties uploadProperties;
+
+    public record StoredUpload(String blobKey, String contentType, long size) {
+    }
+
+    public StoredUpload store(MultipartFile file) throws IOException {
+        // cheap early reject on the declared size, the counted size below is the one that is trusted
+        if (file.getSize() > uploadProperties.largestMaxBytes()) {
+            throw new CustomException(PostAttachmentError.FileTooLarge, file.getOriginalFilename());
+        }
+
+        try (InputStream raw = file.getInputStream()) {
+            return store(raw, file.getOriginalFilename());
+        }
+    }
+
+    // consumes (but does not close) the stream; the size cap depends on the sniffed type (uploads.max-bytes)
+    public StoredUpload store(InputStream raw, String filename) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(raw, SNIFF_BUFFER_BYTES);
+        String contentType = contentTypeDetector.detectContentType(buffered);
+
+        LimitedInputStream limited = new LimitedInputStream(buffered, uploadProperties.maxBytesFor(contentType), filename);
+        String blobKey = blobStore.put(limited);
+        return new StoredUpload(blobKey, contentType, limited.count);
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private final String filename;
+        private long count;
+
+        private LimitedInputStream(InputStream in, long limit, String filename) {
+            super(in);
+            this.limit = limit;
+            this.filename = filename;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) advance(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) advance(n);
+            return n;
+        }
+
+        private void advance(long n) {
+            count += n;
+            // thrown mid-copy; the blob store removes its partial temp file
+            if (count > limit) {
+                throw new CustomException(PostAttachmentError.FileTooLarge, filename);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ir.ac.kntu.backend.service;
+
+/**
+ * SQL for the precomputed comment ranking columns, shared by the vote flush and the reconciliation job so both
+ * derive n_best_score and n_controversy the same way from an upvote and a downvote expression.
+ * <p>
+ * best: lower bound of the Wilson score interval for the upvote ratio at 80% confidence (z = 1.281551565545),
+ * (u + z²/2 - z * sqrt(u*d/n + z²/4)) / (n + z²), which is 0 without votes.
+ * controversial: (u + d) ^ (min(u, d) / max(u, d)), 0 unless there are votes both ways.
+ */
+public final class CommentScores {
+
+    private static final String Z = "1.281551565545";
+    private static final String Z_SQUARED = "1.642374415";
+
+    private CommentScores() {
+    }
+
+    public static String assignments(String up, String down) {
+        String best = "(" + up + " + " + Z_SQUARED + " / 2 - " + Z + " * SQRT(" + up + " * " + down + " / GREATEST(" + up + " + " + down + ", 1) + "
+                + Z_SQUARED + " / 4)) / (" + up + " + " + down + " + " + Z_SQUARED + ")";
+        String controversy = "CASE WHEN " + up + " = 0 OR " + down + " = 0 THEN 0 ELSE POW(" + up + " + " + down + ", LEAST("
+                + up + ", " + down + ") / GREATEST(" + up + ", " + down + ")) END";
+        return "n_best_score = " + best + ", n_controversy = " + controversy;
+    }
+}
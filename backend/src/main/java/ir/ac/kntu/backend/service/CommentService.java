@@ -1,11 +1,16 @@
 package ir.ac.kntu.backend.service;
 
+import ir.ac.kntu.backend.CommentPathBackfillJob;
 import ir.ac.kntu.backend.CustomException;
 import ir.ac.kntu.backend.DTO.CommentDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
+import ir.ac.kntu.backend.config.CacheConfig;
 import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
 import ir.ac.kntu.backend.error.CommentErrorCode;
 import ir.ac.kntu.backend.error.PostErrorCode;
 import ir.ac.kntu.backend.error.UserErrorCode;
+import ir.ac.kntu.backend.event.PostActivityEvent;
+import ir.ac.kntu.backend.event.UserContentChangedEvent;
 import ir.ac.kntu.backend.iservice.IBeanMapper;
 import ir.ac.kntu.backend.iservice.ICommentService;
 import ir.ac.kntu.backend.model.*;
@@ -13,9 +18,17 @@ import ir.ac.kntu.backend.repository.CommentRepository;
 import ir.ac.kntu.backend.repository.PostRepository;
 import ir.ac.kntu.backend.repository.UserRepository;
 import ir.ac.kntu.backend.repository.VoteRepository;
+import ir.ac.kntu.backend.search.Cursor;
+import ir.ac.kntu.backend.search.PageRequest;
+import ir.ac.kntu.backend.search.SearchUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -32,6 +45,10 @@ public class CommentService implements ICommentService {
     private final UserRepository userRepository;
     private final VoteRepository voteRepository;
     private final IBeanMapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApproximateCounts approximateCounts;
+    private final CommentPathBackfillJob pathBackfill;
+    private final CacheManager cacheManager;
 
     // Safety caps
     private static final int MAX_NODES = 5000;   // maximum comments to fetch in a single thread
@@ -39,6 +56,7 @@ public class CommentService implements ICommentService {
 
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.POSTS, key = "#postId")
     @Override
     public CommentDTO.CommentThread createComment(Long postId, CommentDTO.CommentCreateRq rq) {
 
@@ -47,16 +65,21 @@ public class CommentService implements ICommentService {
 
         Comment comment = mapper.toComment(rq);
 
+        Comment parent = null;
         if (rq.getParentId() != null) {
-            Comment parent = commentRepository.findById(rq.getParentId())
+            parent = commentRepository.findById(rq.getParentId())
                     .orElseThrow(() -> new CustomException(CommentErrorCode.CommentNotFound, rq.getParentId().toString()));
 
             if (parent.getId().equals(postId)) {
                 throw new CustomException(CommentErrorCode.IllegalReply, postId.toString());
             }
+            if (parent.getDepth() != null && parent.getDepth() >= MAX_ALLOWED_DEPTH) {
+                throw new CustomException(CommentErrorCode.ThreadTooDeep, rq.getParentId().toString());
+            }
 
             comment.setParent(parent);
         }
+        comment.placeUnder(parent);
 
 
         comment.setPost(post);
@@ -69,7 +92,10 @@ public class CommentService implements ICommentService {
         comment.setAuthor(author);
 
         Comment saved =  commentRepository.saveAndFlush(comment);
-        
+        postRepository.addToCommentCount(postId, 1);
+        eventPublisher.publishEvent(new UserContentChangedEvent(actingUserId));
+        eventPublisher.publishEvent(new PostActivityEvent(List.of(postId)));
+
         return mapper.toCommentThread(saved);
     }
 
@@ -92,7 +118,9 @@ public class CommentService implements ICommentService {
 
         mapper.updateComment(comment, rq);
 
-        return mapper.toCommentSummary(commentRepository.saveAndFlush(comment));
+        CommentDTO.Summary updated = mapper.toCommentSummary(commentRepository.saveAndFlush(comment));
+        eventPublisher.publishEvent(new UserContentChangedEvent(actingUserId));
+        return updated;
 
     }
 
@@ -109,10 +137,18 @@ public class CommentService implements ICommentService {
 
         if(!comment.getAuthor().getId().equals(actingUserId)) throw new CustomException(CommentErrorCode.UnauthorizedEditByNonOwner, actingUserId.toString());
 
+        if (comment.isDeleted()) return true;
+
         comment.setDeleted(true);
         comment.setText("[deleted]");
 
         commentRepository.saveAndFlush(comment);
+        postRepository.addToCommentCount(comment.getPost().getId(), -1);
+        // the cached post still carries the old comment count; the eviction is applied on commit
+        Cache posts = cacheManager.getCache(CacheConfig.POSTS);
+        if (posts != null) posts.evict(comment.getPost().getId());
+        eventPublisher.publishEvent(new UserContentChangedEvent(actingUserId));
+        eventPublisher.publishEvent(new PostActivityEvent(List.of(comment.getPost().getId())));
         return true;
     }
 
@@ -123,12 +159,149 @@ public class CommentService implements ICommentService {
      * @param pageable   paging for top-level comments
      * @param replyLimit maximum immediate replies to attach to each parent (0 = none, Integer.MAX = all)
      * @param maxDepth   number of reply levels to fetch (1 = immediate children only, 2 = children + grandchildren, etc.)
+     * @param sort       ranking of the top-level comments and of the replies under each parent
      * @return Page of CommentDTO.CommentThread for top-level nodes, each populated with replies up to maxDepth
      */
     @Transactional(readOnly = true)
     @Override
-    public Page<CommentDTO.CommentThread> getTopLevelCommentsWithReplies(Long postId, Pageable pageable, int replyLimit, int maxDepth) {
+    public Page<CommentDTO.CommentThread> getTopLevelCommentsWithReplies(Long postId, Pageable pageable, int replyLimit, int maxDepth, CommentSort sort) {
+
+        checkReplyBounds(replyLimit, maxDepth);
+
+        Page<Comment> topLevel = SearchUtil.page(sorted(pageable, sort.getSort()),
+                p -> commentRepository.findByPost_IdAndParentIsNull(postId, p),
+                p -> commentRepository.findSliceByPost_IdAndParentIsNull(postId, p),
+                () -> approximateCounts.get("comments:top-level:" + postId, () -> commentRepository.countByPost_IdAndParentIsNull(postId)));
+        Map<Long, CommentDTO.CommentThread> dtoById = withReplies(topLevel.getContent(), replyLimit, maxDepth, sort);
+
+        // Now create Page<CommentDTO.CommentThread> by mapping topLevel content to their DTOs
+        return topLevel.map(c -> dtoById.get(c.getId()));
+    }
+
+    /**
+     * Return the subtree (thread) rooted at parentCommentId as a CommentDTO.Tree (root node).
+     * Reads the subtree with one range scan over the materialized path; until every comment has a path it falls
+     * back to a BFS-style multi-parent query per level.
+     *
+     * @param parentCommentId id of the comment to serve as root of thread
+     * @param sort            ranking of the replies under each comment
+     * @return CommentDTO.Tree for the parent (including nested replies)
+     * @throws NoSuchElementException if parent is not found
+     * @throws IllegalStateException for safety limit breaches
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public CommentDTO.CommentThread getCommentThread(Long parentCommentId, CommentSort sort) {
+
+        Comment root = commentRepository.findById(parentCommentId)
+                .orElseThrow(() -> new CustomException(CommentErrorCode.CommentNotFound, parentCommentId.toString()));
+
+        List<Comment> collected = new ArrayList<>();
+        collected.add(root);
+
+        if (pathBackfill.isComplete() && root.getPath() != null) {
+            // the whole subtree in one range scan over the materialized path
+            List<Comment> descendants = commentRepository.findSubtree(root.threadRootId(), root.descendantPathPrefix() + "%", SearchUtil.limit(MAX_NODES));
+            collected.addAll(descendants);
+            if (collected.size() > MAX_NODES) {
+                throw new IllegalStateException("Comment thread too large (>" + MAX_NODES + " nodes)");
+            }
+            if (!descendants.isEmpty() && descendants.get(descendants.size() - 1).getDepth() - root.getDepth() > MAX_ALLOWED_DEPTH) {
+                throw new IllegalStateException("Comment tree too deep (> " + MAX_ALLOWED_DEPTH + ")");
+            }
+            return assembleThread(root, collected, sort);
+        }
+
+        // BFS queue of parent ids to find replies for
+        Queue<Long> queue = new ArrayDeque<>();
+        queue.add(root.getId());
+
+        // Keep track of seen ids to avoid cycles
+        Set<Long> seen = new HashSet<>();
+        seen.add(root.getId());
+
+        int depth = 0;
+        while (!queue.isEmpty()) {
+
+            if (depth++ > MAX_ALLOWED_DEPTH) {
+                throw new IllegalStateException("Comment tree too deep (> " + MAX_ALLOWED_DEPTH + ")");
+            }
+
+            // gather next-level parent ids
+            List<Long> parentIds = new ArrayList<>();
+            while (!queue.isEmpty()) parentIds.add(queue.poll());
+
+            // fetch immediate replies for all parentIds in one query
+            List<Comment> replies = commentRepository.findByParent_IdInOrderByCreatedAtAsc(parentIds);
+
+            if (replies.isEmpty()) break;
+
+            // Add each reply if not seen; enqueue its id for next round
+            for (Comment r : replies) {
+                Long rid = r.getId();
+                if (rid == null) continue;
+                if (seen.add(rid)) {
+                    collected.add(r);
+                    queue.add(rid);
+                }
+            }
+
+            if (collected.size() > MAX_NODES) {
+                throw new IllegalStateException("Comment thread too large (>" + MAX_NODES + " nodes)");
+            }
+        }
+
+        return assembleThread(root, collected, sort);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Page<CommentDTO.Summary> listUserComments(Long userId, Pageable pageable) {
+
+        Page<Comment> commentPage = SearchUtil.page(pageable,
+                p -> commentRepository.findByAuthor_IdOrderByCreatedAtDesc(userId, p),
+                p -> commentRepository.findSliceByAuthor_IdOrderByCreatedAtDesc(userId, p),
+                () -> approximateCounts.get("comments:author:" + userId, () -> commentRepository.countByAuthor_Id(userId)));
+        return commentPage.map(mapper::toCommentSummary);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public SliceDTO<CommentDTO.CommentThread> getTopLevelCommentsWithRepliesAfter(Long postId, String cursor, int size, int replyLimit, int maxDepth) {
 
+        checkReplyBounds(replyLimit, maxDepth);
+
+        List<Comment> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = commentRepository.findTopLevelFirst(postId, SearchUtil.limit(size));
+        } else {
+            Cursor c = Cursor.decode(cursor, 2);
+            rows = commentRepository.findTopLevelAfter(postId, c.getDateTime(0), c.getLong(1), SearchUtil.limit(size));
+        }
+
+        List<Comment> page = rows.size() > size ? rows.subList(0, size) : rows;
+        // the keyset order is chronological, so are the replies under it
+        Map<Long, CommentDTO.CommentThread> dtoById = withReplies(page, replyLimit, maxDepth, CommentSort.OLD);
+        return SearchUtil.slice(rows, size, c -> dtoById.get(c.getId()), c -> Cursor.encode(c.getCreatedAt(), c.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public SliceDTO<CommentDTO.Summary> listUserCommentsAfter(Long userId, String cursor, int size) {
+
+        List<Comment> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = commentRepository.findByAuthorFirst(userId, SearchUtil.limit(size));
+        } else {
+            Cursor c = Cursor.decode(cursor, 2);
+            rows = commentRepository.findByAuthorAfter(userId, c.getDateTime(0), c.getLong(1), SearchUtil.limit(size));
+        }
+        return SearchUtil.slice(rows, size, mapper::toCommentSummary, c -> Cursor.encode(c.getCreatedAt(), c.getId()));
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private static void checkReplyBounds(int replyLimit, int maxDepth) {
         if (maxDepth < 0) {
             throw new IllegalArgumentException("maxDepth must be >= 0");
         }
@@ -138,11 +311,48 @@ public class CommentService implements ICommentService {
         if (maxDepth > MAX_ALLOWED_DEPTH) {
             throw new IllegalArgumentException("maxDepth too large (limit " + MAX_ALLOWED_DEPTH + ")");
         }
+    }
 
-        Page<Comment> topLevel = commentRepository.findByPost_IdAndParentIsNullOrderByCreatedAtAsc(postId, pageable);
+    // the root's pageable with the comment ordering applied; the repo's own PageRequest keeps its total mode
+    private static Pageable sorted(Pageable pageable, Sort sort) {
+        if (pageable instanceof PageRequest p) return p.withSort(sort);
+        return org.springframework.data.domain.PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+    }
+
+    // each reply list is ranked by sort; the root stays first so it is never attached below a reply
+    private CommentDTO.CommentThread assembleThread(Comment root, List<Comment> collected, CommentSort sort) {
+
+        collected.subList(1, collected.size()).sort(sort.getComparator());
+
+        // Map id -> DTO node
+        Map<Long, CommentDTO.CommentThread> dtoById = new HashMap<>(collected.size());
+        for (Comment c : collected) {
+            dtoById.put(c.getId(), mapper.toCommentThread(c));
+        }
+
+        // Attach children to their parent DTO (skip root parent == null)
+        for (Comment c : collected) {
+            CommentDTO.CommentThread node = dtoById.get(c.getId());
+            if (c.getParent() == null) continue; // root or an orphan
+            Long pId = c.getParent().getId();
+            CommentDTO.CommentThread parentDto = dtoById.get(pId);
+            if (parentDto != null) {
+                parentDto.getReplies().add(node);
+            }
+        }
+
+        return dtoById.get(root.getId());
+    }
+
+    /*
+     * Maps the given top-level comments and attaches replies to them breadth first, up to maxDepth levels and
+     * replyLimit replies per parent, the first ones in the given ranking. Returns every mapped node by id.
+     */
+    private Map<Long, CommentDTO.CommentThread> withReplies(List<Comment> topLevel, int replyLimit, int maxDepth, CommentSort sort) {
 
         Map<Long, CommentDTO.CommentThread> dtoById = new LinkedHashMap<>();
         List<Long> frontier = new ArrayList<>();
+        Map<Integer, List<Comment>> levels = loadReplyLevels(topLevel, maxDepth);
 
         for (Comment c : topLevel) {
             CommentDTO.CommentThread node = mapper.toCommentThread(c); // must map author, parentId but not replies
@@ -161,8 +371,10 @@ public class CommentService implements ICommentService {
         while (!frontier.isEmpty() && currentDepth < maxDepth) {
             currentDepth++;
 
-            // Batch query immediate children of all ids in frontier
-            List<Comment> children = commentRepository.findByParent_IdInOrderByCreatedAtAsc(frontier);
+            // immediate children of all ids in frontier: already loaded from the path index, or one query per level
+            List<Comment> children = levels != null
+                    ? levels.getOrDefault(currentDepth, Collections.emptyList())
+                    : commentRepository.findByParent_IdInOrderByCreatedAtAsc(frontier);
 
             if (children == null || children.isEmpty()) break;
 
@@ -175,6 +387,7 @@ public class CommentService implements ICommentService {
             for (Map.Entry<Long, List<Comment>> e : childrenByParent.entrySet()) {
                 Long parentId = e.getKey();
                 List<Comment> allChildren = e.getValue();
+                allChildren.sort(sort.getComparator());
 
                 // ensure parent DTO exists (if parent not in dtoById it might be a deeper node we didn't include)
                 CommentDTO.CommentThread parentDto = dtoById.get(parentId);
@@ -218,95 +431,21 @@ public class CommentService implements ICommentService {
             frontier = nextFrontier;
         }
 
-        // Now create Page<CommentDTO.CommentThread> by mapping topLevel content to their DTOs
-        return topLevel.map(c -> dtoById.get(c.getId()));
+        return dtoById;
     }
 
-    /**
-     * Return the subtree (thread) rooted at parentCommentId as a CommentDTO.Tree (root node).
-     * This does a BFS-style multi-parent query to fetch only relevant descendants.
-     *
-     * @param parentCommentId id of the comment to serve as root of thread
-     * @return CommentDTO.Tree for the parent (including nested replies)
-     * @throws NoSuchElementException if parent is not found
-     * @throws IllegalStateException for safety limit breaches
+    /*
+     * Every reply under the given top-level comments down to maxDepth, fetched in one range scan and grouped by
+     * depth. Null while the path index is incomplete, or when the threads are too large to take whole; the caller
+     * then walks level by level and only loads what replyLimit lets through.
      */
-    @Transactional(readOnly = true)
-    @Override
-    public CommentDTO.CommentThread getCommentThread(Long parentCommentId) {
-
-        Comment root = commentRepository.findById(parentCommentId)
-                .orElseThrow(() -> new CustomException(CommentErrorCode.CommentNotFound, parentCommentId.toString()));
+    private Map<Integer, List<Comment>> loadReplyLevels(List<Comment> topLevel, int maxDepth) {
+        if (maxDepth == 0 || topLevel.isEmpty() || !pathBackfill.isComplete()) return null;
 
-        List<Comment> collected = new ArrayList<>();
-        collected.add(root);
-
-        // BFS queue of parent ids to find replies for
-        Queue<Long> queue = new ArrayDeque<>();
-        queue.add(root.getId());
+        List<Long> rootIds = topLevel.stream().map(Comment::getId).collect(Collectors.toList());
+        List<Comment> replies = commentRepository.findByThreadRoots(rootIds, maxDepth, SearchUtil.limit(MAX_NODES));
+        if (replies.size() > MAX_NODES) return null;
 
-        // Keep track of seen ids to avoid cycles
-        Set<Long> seen = new HashSet<>();
-        seen.add(root.getId());
-
-        int depth = 0;
-        while (!queue.isEmpty()) {
-
-            if (depth++ > MAX_ALLOWED_DEPTH) {
-                throw new IllegalStateException("Comment tree too deep (> " + MAX_ALLOWED_DEPTH + ")");
-            }
-
-            // gather next-level parent ids
-            List<Long> parentIds = new ArrayList<>();
-            while (!queue.isEmpty()) parentIds.add(queue.poll());
-
-            // fetch immediate replies for all parentIds in one query
-            List<Comment> replies = commentRepository.findByParent_IdInOrderByCreatedAtAsc(parentIds);
-
-            if (replies.isEmpty()) break;
-
-            // Add each reply if not seen; enqueue its id for next round
-            for (Comment r : replies) {
-                Long rid = r.getId();
-                if (rid == null) continue;
-                if (seen.add(rid)) {
-                    collected.add(r);
-                    queue.add(rid);
-                }
-            }
-
-            if (collected.size() > MAX_NODES) {
-                throw new IllegalStateException("Comment thread too large (>" + MAX_NODES + " nodes)");
-            }
-        }
-
-        // Map id -> DTO node
-        Map<Long, CommentDTO.CommentThread> dtoById = new HashMap<>(collected.size());
-        for (Comment c : collected) {
-            dtoById.put(c.getId(), mapper.toCommentThread(c));
-        }
-
-        // Attach children to their parent DTO (skip root parent == null)
-        for (Comment c : collected) {
-            CommentDTO.CommentThread node = dtoById.get(c.getId());
-            if (c.getParent() == null) continue; // root or an orphan
-            Long pId = c.getParent().getId();
-            CommentDTO.CommentThread parentDto = dtoById.get(pId);
-            if (parentDto != null) {
-                parentDto.getReplies().add(node);
-            }
-        }
-
-        return dtoById.get(root.getId());
-    }
-
-    @Transactional(readOnly = true)
-    @Override
-    public Page<CommentDTO.Summary> listUserComments(Long userId, Pageable pageable) {
-
-        Page<Comment> commentPage = commentRepository.findByAuthor_IdOrderByCreatedAtDesc(userId, pageable);
-        return commentPage.map(mapper::toCommentSummary);
+        return replies.stream().collect(Collectors.groupingBy(Comment::getDepth, HashMap::new, Collectors.toList()));
     }
-
-
 }
@@ -4,18 +4,28 @@ import ir.ac.kntu.backend.ContentTypeDetector;
 import ir.ac.kntu.backend.CustomException;
 import ir.ac.kntu.backend.DTO.CommunityDTO;
 import ir.ac.kntu.backend.DTO.CommunityImageDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
+import ir.ac.kntu.backend.config.CacheConfig;
 import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
 import ir.ac.kntu.backend.error.CommunityErrorCode;
 import ir.ac.kntu.backend.error.UserErrorCode;
+import ir.ac.kntu.backend.event.UserContentChangedEvent;
 import ir.ac.kntu.backend.iservice.IBeanMapper;
+import ir.ac.kntu.backend.iservice.IBlobStore;
 import ir.ac.kntu.backend.iservice.ICommunityService;
+import ir.ac.kntu.backend.iservice.IMembershipService;
 import ir.ac.kntu.backend.model.Community;
 import ir.ac.kntu.backend.model.CommunityImage;
 import ir.ac.kntu.backend.model.User;
 import ir.ac.kntu.backend.repository.CommunityImageRepository;
 import ir.ac.kntu.backend.repository.CommunityRepository;
 import ir.ac.kntu.backend.repository.UserRepository;
+import ir.ac.kntu.backend.search.Cursor;
+import ir.ac.kntu.backend.search.SearchUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
@@ -27,6 +37,8 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -40,6 +52,8 @@ public class CommunityService implements ICommunityService {
     private final UserRepository userRepository;
     private final CommunityImageRepository imageRepository;
     private final IBeanMapper mapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApproximateCounts approximateCounts;
 
     private static final Set<String> ALLOWED_IMAGE_MIMES = Set.of("image/jpeg", "image/pjpeg", "image/png", "image/gif",
             "image/webp", "image/bmp", "image/x-icon");
@@ -48,29 +62,59 @@ public class CommunityService implements ICommunityService {
     private static final long MAX_FILE_SIZE = 10L * 1024L * 1024L; // 10 MB default
     private final IBeanMapper iBeanMapper;
     private final ContentTypeDetector contentTypeDetector;
+    private final IBlobStore blobStore;
+    private final IMembershipService membershipService;
 
 
     @Transactional(readOnly = true)
     @Override
     public Page<CommunityDTO> listAllCommunities(Pageable pageable) {
-        Page<Community> communityPage = communityRepository.findAll(pageable);
+        Page<Community> communityPage = SearchUtil.page(pageable, communityRepository::findAll, communityRepository::findSlice,
+                () -> approximateCounts.get("communities", communityRepository::count));
         return communityPage.map(mapper::toCommunityDTO);
     }
 
     @Transactional(readOnly = true)
     @Override
     public Page<CommunityDTO> listJoinedCommunities(Long userId, Pageable pageable) {
-        Page<Community> page = communityRepository.findByMembers_Id(userId, pageable);
+        Page<Community> page = SearchUtil.page(pageable,
+                p -> communityRepository.findByMembers_Id(userId, p),
+                p -> communityRepository.findSliceByMembers_Id(userId, p),
+                () -> approximateCounts.get("communities:member:" + userId, () -> communityRepository.countByMembers_Id(userId)));
         return page.map(mapper::toCommunityDTO);
     }
 
     @Transactional(readOnly = true)
     @Override
     public Page<CommunityDTO> listOwnedCommunities(Long userId, Pageable pageable) {
-        Page<Community> page = communityRepository.findByOwner_Id(userId, pageable);
+        Page<Community> page = SearchUtil.page(pageable,
+                p -> communityRepository.findByOwner_Id(userId, p),
+                p -> communityRepository.findSliceByOwner_Id(userId, p),
+                () -> approximateCounts.get("communities:owner:" + userId, () -> communityRepository.countByOwner_Id(userId)));
         return page.map(mapper::toCommunityDTO);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public SliceDTO<CommunityDTO> listAllCommunitiesAfter(String cursor, int size) {
+        List<Community> rows = communityRepository.findAfter(afterId(cursor), SearchUtil.limit(size));
+        return SearchUtil.slice(rows, size, mapper::toCommunityDTO, c -> Cursor.encode(c.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public SliceDTO<CommunityDTO> listJoinedCommunitiesAfter(Long userId, String cursor, int size) {
+        List<Community> rows = communityRepository.findByMemberAfter(userId, afterId(cursor), SearchUtil.limit(size));
+        return SearchUtil.slice(rows, size, mapper::toCommunityDTO, c -> Cursor.encode(c.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public SliceDTO<CommunityDTO> listOwnedCommunitiesAfter(Long userId, String cursor, int size) {
+        List<Community> rows = communityRepository.findByOwnerAfter(userId, afterId(cursor), SearchUtil.limit(size));
+        return SearchUtil.slice(rows, size, mapper::toCommunityDTO, c -> Cursor.encode(c.getId()));
+    }
+
     // user must be authenticated first
     @Transactional
     @Override
@@ -87,10 +131,13 @@ public class CommunityService implements ICommunityService {
                 .owner(owner)
                 .build();
 
-        return mapper.toCommunityDTO(communityRepository.saveAndFlush(community));
+        CommunityDTO created = mapper.toCommunityDTO(communityRepository.saveAndFlush(community));
+        eventPublisher.publishEvent(new UserContentChangedEvent(ownerId));
+        return created;
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.COMMUNITIES, key = "#id")
     @Override
     public CommunityDTO getCommunity(Long id) {
         Community community = communityRepository.findById(id)
@@ -100,6 +147,7 @@ public class CommunityService implements ICommunityService {
 
     // user must be authenticated
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COMMUNITIES, key = "#id")
     @Override
     public CommunityDTO updateCommunity(Long id, CommunityDTO.CommunityUpdateRequest rq) {
         Community community = communityRepository.findById(id)
@@ -118,6 +166,7 @@ public class CommunityService implements ICommunityService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COMMUNITIES, key = "#id")
     @Override
     public void deleteCommunity(Long id) {
 
@@ -134,43 +183,45 @@ public class CommunityService implements ICommunityService {
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COMMUNITIES, key = "#communityId")
     @Override
     public void joinCommunity(Long communityId) {
 
         Long actingUserId = ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
 
-        Community community = communityRepository.findById(communityId)
-                .orElseThrow(() -> new CustomException(CommunityErrorCode.InvalidCommunityId, communityId.toString()));
-
-        User user = userRepository.findById(actingUserId)
-                .orElseThrow(() -> new CustomException(UserErrorCode.UserNotFound, actingUserId.toString()));
+        if (!communityRepository.existsById(communityId)) {
+            throw new CustomException(CommunityErrorCode.InvalidCommunityId, communityId.toString());
+        }
+        if (!userRepository.existsById(actingUserId)) {
+            throw new CustomException(UserErrorCode.UserNotFound, actingUserId.toString());
+        }
 
-        if (!community.getMembers().contains(user)) {
-            community.getMembers().add(user);
-            communityRepository.saveAndFlush(community);
+        if (membershipService.join(actingUserId, communityId)) {
+            communityRepository.addToMemberCount(communityId, 1);
+            eventPublisher.publishEvent(new UserContentChangedEvent(actingUserId));
         }
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COMMUNITIES, key = "#communityId")
     @Override
     public void leaveCommunity(Long communityId) {
 
         Long actingUserId = ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
 
-        Community community = communityRepository.findById(communityId)
-                .orElseThrow(() -> new CustomException(CommunityErrorCode.InvalidCommunityId, communityId.toString()));
-
-        User user = userRepository.findById(actingUserId)
-                .orElseThrow(() -> new CustomException(UserErrorCode.UserNotFound, actingUserId.toString()));
+        if (!communityRepository.existsById(communityId)) {
+            throw new CustomException(CommunityErrorCode.InvalidCommunityId, communityId.toString());
+        }
 
-        if (community.getMembers().contains(user)) {
-            community.getMembers().remove(user);
-            communityRepository.saveAndFlush(community);
+        if (membershipService.leave(actingUserId, communityId)) {
+            communityRepository.addToMemberCount(communityId, -1);
+            eventPublisher.publishEvent(new UserContentChangedEvent(actingUserId));
         }
     }
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COMMUNITIES, key = "#communityId")
     public CommunityImageDTO uploadAvatar(Long communityId, MultipartFile file) throws IOException {
 
         Long actingUserId = ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
@@ -186,6 +237,7 @@ public class CommunityService implements ICommunityService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COMMUNITIES, key = "#communityId")
     public CommunityImageDTO uploadBanner(Long communityId, MultipartFile file) throws IOException {
         Long actingUserId = ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
 
@@ -204,10 +256,7 @@ public class CommunityService implements ICommunityService {
         Community community = communityRepository.findById(communityId)
                 .orElseThrow(() -> new CustomException(CommunityErrorCode.InvalidCommunityId, communityId.toString()));
         CommunityImage img = community.getAvatarImage();
-        if (img == null || img.getData() == null) {
-            throw new CustomException(CommunityErrorCode.ImageResourceNotFound, "Image Resource Not Found For Community With ID: " + communityId);
-        }
-        return new ByteArrayResource(img.getData());
+        return toResource(img, communityId);
     }
 
     @Override
@@ -216,10 +265,7 @@ public class CommunityService implements ICommunityService {
         Community community = communityRepository.findById(communityId)
                 .orElseThrow(() -> new CustomException(CommunityErrorCode.InvalidCommunityId, communityId.toString()));
         CommunityImage img = community.getBannerImage();
-        if (img == null || img.getData() == null) {
-            throw new CustomException(CommunityErrorCode.ImageResourceNotFound, "Image Resource Not Found For Community With ID: " + communityId);
-        }
-        return new ByteArrayResource(img.getData());
+        return toResource(img, communityId);
     }
 
     @Override
@@ -244,6 +290,10 @@ public class CommunityService implements ICommunityService {
 
     // ------------------------------------- HELPER METHODS -------------------------------------------------------------
 
+    private static Long afterId(String cursor) {
+        return cursor == null || cursor.isBlank() ? 0L : Cursor.decode(cursor, 1).getLong(0);
+    }
+
     private CommunityImageDTO uploadImage(Long communityId, MultipartFile file, boolean avatar) throws IOException {
         Community community = communityRepository.findById(communityId)
                 .orElseThrow(() -> new CustomException(CommunityErrorCode.InvalidCommunityId, communityId.toString()));
@@ -262,10 +312,15 @@ public class CommunityService implements ICommunityService {
         String raw = StringUtils.cleanPath(Objects.toString(file.getOriginalFilename(), ""));
         String filename = java.util.UUID.randomUUID().toString().substring(0, 8) + "_" + raw;
 
+        String blobKey;
+        try (InputStream in = file.getInputStream()) {
+            blobKey = blobStore.put(in);
+        }
+
         CommunityImage image = CommunityImage.builder()
                 .filename(filename)
                 .size(file.getSize())
-                .data(file.getBytes())
+                .blobKey(blobKey)
                 .build();
 
         image = imageRepository.save(image);
@@ -280,6 +335,17 @@ public class CommunityService implements ICommunityService {
         return toCommunityImageDTO(image, communityId, avatar);
     }
 
+    private Resource toResource(CommunityImage img, Long communityId) {
+        if (img != null && img.getBlobKey() != null) {
+            return blobStore.asResource(img.getBlobKey());
+        }
+        // not migrated to the blob store yet
+        if (img == null || img.getData() == null) {
+            throw new CustomException(CommunityErrorCode.ImageResourceNotFound, "Image Resource Not Found For Community With ID: " + communityId);
+        }
+        return new ByteArrayResource(img.getData());
+    }
+
     private CommunityImageDTO toCommunityImageDTO(CommunityImage img, Long communityId, boolean avatar) {
 
         String url = avatar ? ("/api/communities/" + communityId + "/avatar")
@@ -0,0 +1,178 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.iservice.IVideoFrameExtractor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs ffmpeg to grab one frame. At most max-processes ffmpeg children exist at a time, each one is killed
+ * (with its descendants) once it exceeds the wall-clock timeout, and stdout/stderr are always drained so a
+ * chatty process can never block on a full pipe. File-backed videos are passed by path so ffmpeg can seek;
+ * anything else (legacy inline bytes) is piped over stdin.
+ */
+@Slf4j
+@Service
+public class FfmpegFrameExtractor implements IVideoFrameExtractor {
+
+    private static final int STDERR_TAIL_BYTES = 4 * 1024;
+
+    private final String binary;
+    private final long timeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final int maxOutputBytes;
+    private final Semaphore processes;
+    private final ExecutorService pumps;
+
+    public FfmpegFrameExtractor(@Value("${thumbnails.ffmpeg.binary:ffmpeg}") String binary,
+                                @Value("${thumbnails.ffmpeg.timeout-ms:30000}") long timeoutMillis,
+                                @Value("${thumbnails.ffmpeg.max-processes:2}") int maxProcesses,
+                                @Value("${thumbnails.ffmpeg.acquire-timeout-ms:10000}") long acquireTimeoutMillis,
+                                @Value("${thumbnails.ffmpeg.max-output-bytes:10485760}") int maxOutputBytes) {
+        this.binary = binary;
+        this.timeoutMillis = timeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.maxOutputBytes = maxOutputBytes;
+        this.processes = new Semaphore(maxProcesses, true);
+
+        AtomicInteger n = new AtomicInteger();
+        this.pumps = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "ffmpeg-io-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public byte[] extractFrame(Resource video) throws IOException {
+        boolean piped = !video.isFile();
+        String input = piped ? "pipe:0" : video.getFile().getAbsolutePath();
+
+        try {
+            if (!processes.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("no ffmpeg slot available within " + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for an ffmpeg slot", e);
+        }
+
+        try {
+            return run(command(input), piped ? video : null);
+        } finally {
+            processes.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pumps.shutdownNow();
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private List<String> command(String input) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(binary);
+        cmd.addAll(List.of("-hide_banner", "-loglevel", "error"));
+        cmd.addAll(List.of("-i", input, "-ss", "00:00:01.000", "-frames:v", "1", "-q:v", "2", "-f", "image2", "-c:v", "mjpeg", "pipe:1"));
+        return cmd;
+    }
+
+    private byte[] run(List<String> cmd, Resource stdinSource) throws IOException {
+        Process process = new ProcessBuilder(cmd).start();
+
+        Future<byte[]> stdout = pumps.submit(() -> readCapped(process.getInputStream(), maxOutputBytes));
+        Future<byte[]> stderr = pumps.submit(() -> readTail(process.getErrorStream()));
+        Future<?> stdin = stdinSource == null ? null : pumps.submit(() -> feed(stdinSource, process.getOutputStream()));
+        if (stdinSource == null) process.getOutputStream().close();
+
+        try {
+            if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                kill(process);
+                throw new IOException("ffmpeg timed out after " + timeoutMillis + " ms");
+            }
+
+            byte[] frame = stdout.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (process.exitValue() != 0 || frame.length == 0) {
+                String err = new String(stderr.get(timeoutMillis, TimeUnit.MILLISECONDS), StandardCharsets.UTF_8).trim();
+                throw new IOException("ffmpeg exited with " + process.exitValue() + (err.isEmpty() ? "" : ": " + err));
+            }
+            return frame;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            kill(process);
+            throw new IOException("interrupted while waiting for ffmpeg", e);
+        } catch (ExecutionException | TimeoutException e) {
+            kill(process);
+            throw new IOException("reading ffmpeg output failed: " + e.getMessage(), e);
+        } finally {
+            if (stdin != null) stdin.cancel(true);
+            stdout.cancel(true);
+            stderr.cancel(true);
+        }
+    }
+
+    private static void kill(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static void feed(Resource source, OutputStream stdin) {
+        try (OutputStream out = stdin; InputStream in = source.getInputStream()) {
+            in.transferTo(out);
+        } catch (IOException ignore) {
+            // ffmpeg closes stdin as soon as it has its frame
+        }
+    }
+
+    private static byte[] readCapped(InputStream in, int cap) throws IOException {
+        try (in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int r;
+            while ((r = in.read(buf)) != -1) {
+                if (out.size() + r > cap) throw new IOException("ffmpeg output exceeds " + cap + " bytes");
+                out.write(buf, 0, r);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    // keeps only the last few KB so a noisy ffmpeg cannot grow the heap
+    private static byte[] readTail(InputStream in) throws IOException {
+        try (in) {
+            byte[] ring = new byte[STDERR_TAIL_BYTES];
+            long total = 0;
+            byte[] buf = new byte[1024];
+            int r;
+            while ((r = in.read(buf)) != -1) {
+                for (int i = 0; i < r; i++) {
+                    ring[(int) (total++ % STDERR_TAIL_BYTES)] = buf[i];
+                }
+            }
+            if (total <= STDERR_TAIL_BYTES) {
+                byte[] out = new byte[(int) total];
+                System.arraycopy(ring, 0, out, 0, (int) total);
+                return out;
+            }
+            byte[] out = new byte[STDERR_TAIL_BYTES];
+            int start = (int) (total % STDERR_TAIL_BYTES);
+            System.arraycopy(ring, start, out, 0, STDERR_TAIL_BYTES - start);
+            System.arraycopy(ring, 0, out, STDERR_TAIL_BYTES - start, start);
+            return out;
+        }
+    }
+}
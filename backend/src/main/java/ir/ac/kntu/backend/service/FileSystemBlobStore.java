@@ -0,0 +1,115 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.iservice.IBlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Local-filesystem blob store. Blobs live under {root}/{k[0..2]}/{k[2..4]}/{k} so no directory grows past
+ * a few thousand entries; writes go to {root}/tmp first and are moved into place once the hash is known.
+ */
+@Slf4j
+@Service
+public class FileSystemBlobStore implements IBlobStore {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+    private final Path tmpDir;
+
+    public FileSystemBlobStore(@Value("${blob-store.root:./data/blobs}") String root) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.tmpDir = this.root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        log.info("Blob store root: {}", this.root);
+    }
+
+    @Override
+    public String put(byte[] data) throws IOException {
+        return put(new ByteArrayInputStream(data));
+    }
+
+    @Override
+    public String put(InputStream in) throws IOException {
+        Path tmp = tmpDir.resolve(UUID.randomUUID().toString());
+        MessageDigest digest = sha256();
+        try {
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW), digest)) {
+                in.transferTo(out);
+            }
+            String key = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(key);
+            if (Files.exists(target)) {
+                // same content already stored
+                Files.deleteIfExists(tmp);
+                return key;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException raced) {
+                Files.deleteIfExists(tmp);
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(pathOf(key));
+    }
+
+    @Override
+    public Resource asResource(String key) {
+        return new FileSystemResource(pathOf(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(pathOf(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return key != null && KEY_PATTERN.matcher(key).matches() && Files.exists(pathOf(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(pathOf(key));
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private Path pathOf(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
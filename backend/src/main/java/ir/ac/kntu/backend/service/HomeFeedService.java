@@ -0,0 +1,244 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.DTO.SliceDTO;
+import ir.ac.kntu.backend.event.UserContentChangedEvent;
+import ir.ac.kntu.backend.iservice.IHomeFeedService;
+import ir.ac.kntu.backend.repository.CommunityRepository;
+import ir.ac.kntu.backend.search.Cursor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Home feed: the newest posts across every community a user joined. Instead of one IN (...) ORDER BY over posts,
+ * each community is read as its own newest-first cursor on (community_id, d_created_date, id) and the cursors are
+ * merged k-way, so no query sorts more rows than it returns.
+ * <p>
+ * The head of the merged feed is materialized per user in Redis for a short time; later pages inside it are
+ * served from there and pages past it are merged from the database starting at the continuation cursor.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HomeFeedService implements IHomeFeedService {
+
+    private static final String FEED_KEY_PREFIX = "feed:home:";
+    private static final int BRANCHES_PER_QUERY = 50;
+    private static final int MIN_BRANCH_ROWS = 4;
+    private static final Comparator<Position> NEWEST_FIRST =
+            Comparator.comparing(Position::createdAt).thenComparing(Position::id).reversed();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final CommunityRepository communityRepository;
+
+    @Value("${feeds.home.materialized-size:200}")
+    private int materializedSize;
+
+    @Value("${feeds.home.cache-ttl-ms:60000}")
+    private long cacheTtlMillis;
+
+    @Override
+    public SliceDTO<Long> page(Long userId, String cursor, int size) {
+        Position from = null;
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor c = Cursor.decode(cursor, 2);
+            from = new Position(c.getDateTime(0), c.getLong(1));
+        }
+
+        List<Position> entries = fromMaterialized(userId, from, size + 1);
+        if (entries == null) {
+            entries = merge(communityRepository.findJoinedCommunityIds(userId), from, size + 1);
+        }
+
+        boolean hasNext = entries.size() > size;
+        List<Position> page = hasNext ? entries.subList(0, size) : entries;
+        Position last = hasNext ? page.get(page.size() - 1) : null;
+        return new SliceDTO<>(page.stream().map(Position::id).toList(), hasNext,
+                last != null ? Cursor.encode(last.createdAt(), last.id()) : null);
+    }
+
+    // joins, leaves and the user's own posts show up at once instead of after the TTL
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserContentChanged(UserContentChangedEvent event) {
+        try {
+            redisTemplate.delete(FEED_KEY_PREFIX + event.userId());
+        } catch (RuntimeException ex) {
+            // the stale feed still expires with its TTL
+            log.warn("Could not drop the home feed of user {}: {}", event.userId(), ex.getMessage());
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    /*
+     * Up to limit entries after `from` out of the materialized feed, which is built on a first-page miss. Null when
+     * the page reaches past the materialized head (or it is not there), so the caller merges from the database.
+     * The materialized list keeps one entry more than materializedSize, so a shorter list is the whole feed.
+     */
+    private List<Position> fromMaterialized(Long userId, Position from, int limit) {
+        List<Position> feed;
+        try {
+            feed = readMaterialized(userId);
+            if (feed == null) {
+                if (from != null) return null;
+                feed = merge(communityRepository.findJoinedCommunityIds(userId), null, materializedSize + 1);
+                writeMaterialized(userId, feed);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Home feed cache unavailable for user {}: {}", userId, ex.getMessage());
+            return null;
+        }
+
+        int start = 0;
+        if (from != null) {
+            while (start < feed.size() && NEWEST_FIRST.compare(feed.get(start), from) <= 0) start++;
+        }
+        boolean complete = feed.size() <= materializedSize;
+        if (!complete && start + limit > feed.size()) return null;
+        return feed.subList(start, Math.min(start + limit, feed.size()));
+    }
+
+    /*
+     * k-way merge of the communities' newest-first streams. Every branch starts with a few rows, fetched for all
+     * communities in a handful of UNION ALL statements; a branch that runs dry while it may still hold older posts
+     * is refilled on its own, which only happens for the few communities that dominate the page.
+     */
+    private List<Position> merge(List<Long> communityIds, Position from, int limit) {
+        if (communityIds.isEmpty()) return List.of();
+
+        int branchRows = Math.min(limit, Math.max(MIN_BRANCH_ROWS, 2 * limit / communityIds.size() + 1));
+        PriorityQueue<Branch> heads = new PriorityQueue<>(Comparator.comparing(Branch::peek, NEWEST_FIRST));
+        for (Branch b : fetchHeads(communityIds, from, branchRows)) {
+            if (!b.rows.isEmpty()) heads.add(b);
+        }
+
+        List<Position> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Branch b = heads.poll();
+            Position p = b.rows.poll();
+            merged.add(p);
+            if (b.rows.isEmpty() && b.full) {
+                b.fill(fetchBranch(b.communityId, p, branchRows), branchRows);
+            }
+            if (!b.rows.isEmpty()) heads.add(b);
+        }
+        return merged;
+    }
+
+    private List<Branch> fetchHeads(List<Long> communityIds, Position from, int rows) {
+        Map<Long, List<Position>> byCommunity = new LinkedHashMap<>();
+        for (Long id : communityIds) byCommunity.put(id, new ArrayList<>());
+
+        for (int i = 0; i < communityIds.size(); i += BRANCHES_PER_QUERY) {
+            List<Long> chunk = communityIds.subList(i, Math.min(i + BRANCHES_PER_QUERY, communityIds.size()));
+            List<Object> args = new ArrayList<>();
+            for (Long id : chunk) args.addAll(branchArgs(id, from));
+
+            String sql = String.join(" UNION ALL ", Collections.nCopies(chunk.size(), "(" + branchSql(from, rows) + ")"));
+            jdbcTemplate.query(sql, rs -> {
+                byCommunity.get(rs.getLong("community_id"))
+                        .add(new Position(rs.getObject("d_created_date", LocalDateTime.class), rs.getLong("id")));
+            }, args.toArray());
+        }
+
+        List<Branch> branches = new ArrayList<>(byCommunity.size());
+        byCommunity.forEach((id, positions) -> {
+            // UNION ALL does not promise to keep each branch's order
+            positions.sort(NEWEST_FIRST);
+            Branch b = new Branch(id);
+            b.fill(positions, rows);
+            branches.add(b);
+        });
+        return branches;
+    }
+
+    private List<Position> fetchBranch(Long communityId, Position from, int rows) {
+        return jdbcTemplate.query(branchSql(from, rows),
+                (rs, n) -> new Position(rs.getObject("d_created_date", LocalDateTime.class), rs.getLong("id")),
+                branchArgs(communityId, from).toArray());
+    }
+
+    private static String branchSql(Position from, int rows) {
+        return "SELECT id, community_id, d_created_date FROM posts WHERE community_id = ?"
+                + (from != null ? " AND (d_created_date < ? OR (d_created_date = ? AND id < ?))" : "")
+                + " ORDER BY d_created_date DESC, id DESC LIMIT " + rows;
+    }
+
+    private static List<Object> branchArgs(Long communityId, Position from) {
+        return from == null ? List.of(communityId) : List.of(communityId, from.createdAt(), from.createdAt(), from.id());
+    }
+
+    private List<Position> readMaterialized(Long userId) {
+        List<String> raw = redisTemplate.opsForList().range(FEED_KEY_PREFIX + userId, 0, -1);
+        if (raw == null || raw.isEmpty()) return null;
+        return raw.stream().map(Position::parse).toList();
+    }
+
+    private void writeMaterialized(Long userId, List<Position> feed) {
+        // an empty feed cannot be stored as a list; it is cheap to merge again
+        if (feed.isEmpty()) return;
+        String key = FEED_KEY_PREFIX + userId;
+        String[] values = feed.stream().map(Position::format).toArray(String[]::new);
+        // one MULTI/EXEC, so concurrent misses replace rather than append to each other and the list never lives
+        // without its TTL
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.multi();
+            redis.del(key);
+            redis.rPush(key, values);
+            redis.pExpire(key, cacheTtlMillis);
+            return redis.exec();
+        });
+    }
+
+    private record Position(LocalDateTime createdAt, Long id) {
+
+        String format() {
+            return createdAt + "|" + id;
+        }
+
+        static Position parse(String raw) {
+            int sep = raw.lastIndexOf('|');
+            return new Position(LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+        }
+    }
+
+    // one community's cursor: rows fetched but not merged yet, and whether the last fetch came back full
+    private static final class Branch {
+        private final Long communityId;
+        private final Deque<Position> rows = new ArrayDeque<>();
+        private boolean full;
+
+        private Branch(Long communityId) {
+            this.communityId = communityId;
+        }
+
+        private Position peek() {
+            return rows.peek();
+        }
+
+        private void fill(List<Position> fetched, int requested) {
+            rows.addAll(fetched);
+            full = fetched.size() == requested;
+        }
+    }
+}
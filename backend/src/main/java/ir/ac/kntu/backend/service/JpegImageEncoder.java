@@ -0,0 +1,52 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.iservice.IImageEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+@Service
+public class JpegImageEncoder implements IImageEncoder {
+
+    @Value("${thumbnails.jpeg-quality:0.82}")
+    private float quality;
+
+    @Override
+    public String name() {
+        return "jpeg";
+    }
+
+    @Override
+    public String contentType() {
+        return "image/jpeg";
+    }
+
+    @Override
+    public byte[] encode(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) throw new IOException("No JPEG writer available");
+        ImageWriter writer = writers.next();
+
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,126 @@
+package ir.ac.kntu.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ir.ac.kntu.backend.iservice.IMembershipService;
+import ir.ac.kntu.backend.repository.CommunityRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Membership checks against t_user_joined_communities without touching the Community.members collection.
+ * Each user's joined community ids are cached as a sorted long[] (8 bytes per membership, binary search on lookup);
+ * join/leave evict the user's entry on this node and broadcast the user id, so every other node drops its copy too.
+ */
+@Slf4j
+@Service
+public class MembershipService implements IMembershipService, MessageListener {
+
+    private final CommunityRepository communityRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channel;
+    private final Cache<Long, long[]> joinedByUser;
+
+    public MembershipService(CommunityRepository communityRepository,
+                             StringRedisTemplate redisTemplate,
+                             RedisMessageListenerContainer listenerContainer,
+                             @Value("${membership.cache.invalidation-channel:membership-invalidation}") String channel,
+                             @Value("${membership.cache.max-users:100000}") long maxUsers,
+                             @Value("${membership.cache.ttl-ms:60000}") long ttlMillis) {
+        this.communityRepository = communityRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.channel = channel;
+        this.joinedByUser = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .build();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isMember(Long userId, Long communityId) {
+        long[] joined = joinedByUser.get(userId, this::loadJoined);
+        return Arrays.binarySearch(joined, communityId) >= 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean join(Long userId, Long communityId) {
+        boolean inserted = communityRepository.insertMembership(userId, communityId) > 0;
+        if (inserted) evict(userId);
+        return inserted;
+    }
+
+    @Override
+    @Transactional
+    public boolean leave(Long userId, Long communityId) {
+        boolean deleted = communityRepository.deleteMembership(userId, communityId) > 0;
+        if (deleted) evict(userId);
+        return deleted;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            joinedByUser.invalidate(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException ex) {
+            log.warn("Ignoring malformed membership invalidation message: {}", ex.getMessage());
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private long[] loadJoined(Long userId) {
+        return communityRepository.findJoinedCommunityIds(userId).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+    }
+
+    // evict now and again after commit, so a concurrent read cannot re-cache the pre-commit state;
+    // other nodes are told once the change is visible to them
+    private void evict(Long userId) {
+        joinedByUser.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    joinedByUser.invalidate(userId);
+                    publish(userId);
+                }
+            });
+        } else {
+            publish(userId);
+        }
+    }
+
+    private void publish(Long userId) {
+        try {
+            redisTemplate.convertAndSend(channel, userId.toString());
+        } catch (RuntimeException ex) {
+            log.warn("Could not broadcast membership change, other nodes pick it up when their entry expires: {}",
+                    ex.getMessage());
+        }
+    }
+}
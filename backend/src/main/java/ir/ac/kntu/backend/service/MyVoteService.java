@@ -0,0 +1,152 @@
+package ir.ac.kntu.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ir.ac.kntu.backend.DTO.CommentDTO;
+import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
+import ir.ac.kntu.backend.iservice.IBeanMapper;
+import ir.ac.kntu.backend.iservice.IMyVoteService;
+import ir.ac.kntu.backend.model.VotableType;
+import ir.ac.kntu.backend.model.Vote;
+import ir.ac.kntu.backend.repository.VoteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The caller's own votes laid over post and comment DTOs. A response costs at most one query per votable type,
+ * for the ids missing from the user's recent-votes cache. The cache keeps looked up votes (0 included) and the
+ * votes the user cast on this node, so paging back or reloading a thread after voting needs no query; votes cast
+ * on other nodes show up when the user's entry expires.
+ */
+@Service
+public class MyVoteService implements IMyVoteService {
+
+    // ids per IN (...) lookup; a whole comment thread (CommentService.MAX_NODES) fits in one
+    private static final int LOOKUP_CHUNK = 5000;
+
+    private final VoteRepository voteRepository;
+    private final IBeanMapper mapper;
+    private final Cache<Long, Map<VoteKey, Integer>> recentByUser;
+    private final int maxPerUser;
+
+    public MyVoteService(VoteRepository voteRepository,
+                         IBeanMapper mapper,
+                         @Value("${votes.overlay.max-users:100000}") long maxUsers,
+                         @Value("${votes.overlay.max-per-user:5000}") int maxPerUser,
+                         @Value("${votes.overlay.ttl-ms:60000}") long ttlMillis) {
+        this.voteRepository = voteRepository;
+        this.mapper = mapper;
+        this.maxPerUser = maxPerUser;
+        this.recentByUser = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> votesOf(Long userId, VotableType type, Collection<Long> targetIds) {
+        Map<VoteKey, Integer> recent = recentByUser.get(userId, id -> new ConcurrentHashMap<>());
+
+        Map<Long, Integer> votes = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(targetIds)) {
+            if (id == null) continue;
+            Integer value = recent.get(new VoteKey(type, id));
+            if (value != null) votes.put(id, value);
+            else missing.add(id);
+        }
+        if (missing.isEmpty()) return votes;
+
+        for (int from = 0; from < missing.size(); from += LOOKUP_CHUNK) {
+            List<Long> chunk = missing.subList(from, Math.min(from + LOOKUP_CHUNK, missing.size()));
+            for (Vote v : voteRepository.findByUser_IdAndVotableTypeAndVotableIdIn(userId, type, chunk)) {
+                votes.put(v.getVotableId(), v.getValue());
+            }
+        }
+
+        // start over rather than grow without bound; a vote remembered meanwhile wins over the looked up value
+        if (recent.size() + missing.size() > maxPerUser) recent.clear();
+        for (Long id : missing) {
+            recent.putIfAbsent(new VoteKey(type, id), votes.computeIfAbsent(id, k -> 0));
+        }
+        return votes;
+    }
+
+    @Override
+    public void applyToPosts(Collection<PostDTO> posts) {
+        Long userId = currentUserId();
+        if (userId == null || posts.isEmpty()) return;
+
+        Map<Long, Integer> votes = votesOf(userId, VotableType.POST, posts.stream().map(PostDTO::getId).toList());
+        for (PostDTO p : posts) {
+            p.setMyVote(votes.getOrDefault(p.getId(), 0));
+        }
+    }
+
+    @Override
+    public PostDTO applyToCopy(PostDTO post) {
+        if (post == null || currentUserId() == null) return post;
+        PostDTO copy = mapper.copyPostDTO(post);
+        applyToPosts(List.of(copy));
+        return copy;
+    }
+
+    @Override
+    public void applyToComments(Collection<? extends CommentDTO.Summary> comments) {
+        Long userId = currentUserId();
+        if (userId == null || comments.isEmpty()) return;
+
+        Map<Long, Integer> votes = votesOf(userId, VotableType.COMMENT, comments.stream().map(CommentDTO.Summary::getId).toList());
+        for (CommentDTO.Summary c : comments) {
+            c.setMyVote(votes.getOrDefault(c.getId(), 0));
+        }
+    }
+
+    @Override
+    public void applyToThreads(Collection<CommentDTO.CommentThread> roots) {
+        List<CommentDTO.Summary> all = new ArrayList<>();
+        Deque<CommentDTO.CommentThread> pending = new ArrayDeque<>();
+        roots.stream().filter(Objects::nonNull).forEach(pending::add);
+        while (!pending.isEmpty()) {
+            CommentDTO.CommentThread node = pending.pop();
+            all.add(node);
+            if (node.getReplies() != null) {
+                node.getReplies().stream().filter(Objects::nonNull).forEach(pending::add);
+            }
+        }
+        applyToComments(all);
+    }
+
+    @Override
+    public void remember(Long userId, VotableType type, Long targetId, int value) {
+        Map<VoteKey, Integer> recent = recentByUser.getIfPresent(userId);
+        if (recent != null) recent.put(new VoteKey(type, targetId), value);
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private static Long currentUserId() {
+        return SecurityContextHolder.getContext().getAuthentication() instanceof SecurityAuthenticationToken token
+                ? token.getUserId()
+                : null;
+    }
+
+    private record VoteKey(VotableType type, Long targetId) {
+    }
+}
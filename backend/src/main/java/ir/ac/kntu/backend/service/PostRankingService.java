@@ -0,0 +1,221 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.event.PostActivityEvent;
+import ir.ac.kntu.backend.event.PostRemovedEvent;
+import ir.ac.kntu.backend.iservice.IPostRankingService;
+import ir.ac.kntu.backend.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hot ranking of posts kept in Redis sorted sets, one over all posts and one per community, so a feed page is a
+ * ZREVRANGE in O(log n + page size).
+ * <p>
+ * hot = sign(v) * log10(max(|v|, 1)) + commentWeight * log10(1 + comments) + (created - EPOCH) / gravity
+ * <p>
+ * The time term grows with the creation time rather than shrinking with age, so no score has to be lowered as
+ * time passes: a newer post outranks an older one with the same activity, and every tenfold of net votes is worth
+ * gravity seconds of recency. Scores follow votes and comments through PostActivityEvents; the periodic rebuild
+ * recomputes them from the database and drops posts older than the ranking window.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostRankingService implements IPostRankingService {
+
+    private static final String GLOBAL_KEY = "posts:hot";
+    private static final String COMMUNITY_KEY_PREFIX = "posts:hot:community:";
+    // ids of the communities that have a ranked feed, so a rebuild can drop the feeds left without posts
+    private static final String COMMUNITIES_KEY = "posts:hot:communities";
+    private static final String REBUILD_SUFFIX = ":rebuild";
+    private static final long EPOCH_SECONDS = 1704067200L; // 2024-01-01T00:00:00Z
+
+    private final StringRedisTemplate redisTemplate;
+    private final PostRepository postRepository;
+
+    @Value("${ranking.hot.gravity-seconds:45000}")
+    private double gravitySeconds;
+
+    @Value("${ranking.hot.comment-weight:0.5}")
+    private double commentWeight;
+
+    @Value("${ranking.hot.window-days:7}")
+    private int windowDays;
+
+    @Value("${ranking.hot.max-size:5000}")
+    private int maxSize;
+
+    @Value("${ranking.hot.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Override
+    public Page<Long> hotPostIds(Long communityId, Pageable pageable) {
+        String key = communityId == null ? GLOBAL_KEY : communityKey(communityId);
+        long from = pageable.getOffset();
+
+        Set<String> members = redisTemplate.opsForZSet().reverseRange(key, from, from + pageable.getPageSize() - 1);
+        Long total = redisTemplate.opsForZSet().zCard(key);
+
+        List<Long> ids = members == null ? List.of() : members.stream().map(Long::valueOf).toList();
+        return new PageImpl<>(ids, pageable, total == null ? 0 : total);
+    }
+
+    @Override
+    public void refresh(Collection<Long> postIds) {
+        if (postIds == null || postIds.isEmpty()) return;
+
+        // activity on a post that already left the window must not bring it back
+        LocalDateTime since = windowStart();
+        List<PostRepository.RankingInput> posts = postRepository.findRankingInputByIdIn(postIds).stream()
+                .filter(p -> !p.getCreatedAt().isBefore(since))
+                .toList();
+        write(posts, "");
+    }
+
+    @Override
+    public void remove(Long postId, Long communityId) {
+        redisTemplate.opsForZSet().remove(GLOBAL_KEY, postId.toString());
+        if (communityId != null) {
+            redisTemplate.opsForZSet().remove(communityKey(communityId), postId.toString());
+        }
+    }
+
+    /*
+     * Builds every feed into a side key and renames it over the live one, so readers never see a half built feed.
+     * A refresh() landing on the live key while this runs is overwritten with the value read a moment earlier;
+     * the post's next vote or comment corrects it.
+     */
+    @Override
+    public int rebuild() {
+        LocalDateTime since = windowStart();
+        Set<String> previous = communityIds();
+        discardSideKeys(previous);
+
+        Set<String> communities = new HashSet<>();
+        int ranked = 0;
+        long afterId = 0;
+        List<PostRepository.RankingInput> batch;
+        do {
+            batch = postRepository.findRankingInputSince(since, afterId, PageRequest.of(0, rebuildBatchSize));
+            if (batch.isEmpty()) break;
+            write(batch, REBUILD_SUFFIX);
+            for (PostRepository.RankingInput p : batch) {
+                if (p.getCommunityId() != null) communities.add(p.getCommunityId().toString());
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+            ranked += batch.size();
+        } while (batch.size() == rebuildBatchSize);
+
+        swapIn(GLOBAL_KEY, ranked > 0);
+        for (String communityId : communities) {
+            swapIn(communityKey(communityId), true);
+        }
+        for (String communityId : previous) {
+            if (communities.contains(communityId)) continue;
+            redisTemplate.delete(communityKey(communityId));
+            redisTemplate.opsForSet().remove(COMMUNITIES_KEY, communityId);
+        }
+        return ranked;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostActivity(PostActivityEvent event) {
+        try {
+            refresh(event.postIds());
+        } catch (RuntimeException ex) {
+            // the next activity or the periodic rebuild catches the scores up
+            log.warn("Could not update hot scores of posts {}: {}", event.postIds(), ex.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostRemoved(PostRemovedEvent event) {
+        try {
+            remove(event.postId(), event.communityId());
+        } catch (RuntimeException ex) {
+            // readers skip ids whose post is gone; the next rebuild drops it
+            log.warn("Could not remove post {} from the hot feeds: {}", event.postId(), ex.getMessage());
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private double hotScore(PostRepository.RankingInput post) {
+        long votes = post.getVotes();
+        double order = Math.signum(votes) * Math.log10(Math.max(Math.abs(votes), 1));
+        double discussion = commentWeight * Math.log10(1 + Math.max(post.getCommentCount(), 0));
+        long seconds = post.getCreatedAt().atZone(ZoneId.systemDefault()).toEpochSecond() - EPOCH_SECONDS;
+        return order + discussion + seconds / gravitySeconds;
+    }
+
+    // one pipelined round trip for the global and community entries of every post
+    private void write(List<PostRepository.RankingInput> posts, String suffix) {
+        if (posts.isEmpty()) return;
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (PostRepository.RankingInput p : posts) {
+                double score = hotScore(p);
+                String member = p.getId().toString();
+                redis.zAdd(GLOBAL_KEY + suffix, score, member);
+                if (p.getCommunityId() != null) {
+                    redis.zAdd(communityKey(p.getCommunityId()) + suffix, score, member);
+                    redis.sAdd(COMMUNITIES_KEY, p.getCommunityId().toString());
+                }
+            }
+            return null;
+        });
+    }
+
+    // keeps the maxSize best entries of the side key and makes it the live feed
+    private void swapIn(String key, boolean built) {
+        if (!built) {
+            redisTemplate.delete(key);
+            return;
+        }
+        redisTemplate.opsForZSet().removeRange(key + REBUILD_SUFFIX, 0, -(maxSize + 1L));
+        redisTemplate.rename(key + REBUILD_SUFFIX, key);
+    }
+
+    // side keys left over by a rebuild that did not finish
+    private void discardSideKeys(Set<String> communityIds) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.del(GLOBAL_KEY + REBUILD_SUFFIX);
+            for (String communityId : communityIds) {
+                redis.del(communityKey(communityId) + REBUILD_SUFFIX);
+            }
+            return null;
+        });
+    }
+
+    private Set<String> communityIds() {
+        Set<String> ids = redisTemplate.opsForSet().members(COMMUNITIES_KEY);
+        return ids == null ? Set.of() : ids;
+    }
+
+    private LocalDateTime windowStart() {
+        return LocalDateTime.now().minusDays(windowDays);
+    }
+
+    private static String communityKey(Object communityId) {
+        return COMMUNITY_KEY_PREFIX + communityId;
+    }
+}
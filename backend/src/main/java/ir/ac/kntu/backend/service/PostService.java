@@ -1,40 +1,69 @@
 package ir.ac.kntu.backend.service;
 
-import ir.ac.kntu.backend.ContentTypeDetector;
 import ir.ac.kntu.backend.CustomException;
+import ir.ac.kntu.backend.DTO.CommunityDTO;
+import ir.ac.kntu.backend.DTO.CommunityImageDTO;
 import ir.ac.kntu.backend.DTO.PostDTO;
-import ir.ac.kntu.backend.ThumbnailWorker;
+import ir.ac.kntu.backend.DTO.ProfilePhotoDTO;
+import ir.ac.kntu.backend.DTO.SliceDTO;
+import ir.ac.kntu.backend.DTO.UserDTO;
+import ir.ac.kntu.backend.config.CacheConfig;
 import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
+import ir.ac.kntu.backend.event.PostActivityEvent;
+import ir.ac.kntu.backend.event.PostRemovedEvent;
+import ir.ac.kntu.backend.event.UserContentChangedEvent;
 import ir.ac.kntu.backend.error.CommunityErrorCode;
 import ir.ac.kntu.backend.error.PostAttachmentError;
 import ir.ac.kntu.backend.error.PostErrorCode;
 import ir.ac.kntu.backend.error.UserErrorCode;
 import ir.ac.kntu.backend.iservice.IBeanMapper;
+import ir.ac.kntu.backend.iservice.IBlobStore;
+import ir.ac.kntu.backend.iservice.IHomeFeedService;
+import ir.ac.kntu.backend.iservice.IMembershipService;
+import ir.ac.kntu.backend.iservice.IPostRankingService;
 import ir.ac.kntu.backend.iservice.IPostService;
+import ir.ac.kntu.backend.iservice.IThumbnailJobService;
 import ir.ac.kntu.backend.model.*;
+import ir.ac.kntu.backend.repository.CommunityImageRepository;
 import ir.ac.kntu.backend.repository.CommunityRepository;
 import ir.ac.kntu.backend.repository.PostAttachmentRepository;
 import ir.ac.kntu.backend.repository.PostRepository;
+import ir.ac.kntu.backend.repository.ProfilePhotoRepository;
+import ir.ac.kntu.backend.repository.ThumbnailRenditionRepository;
 import ir.ac.kntu.backend.repository.UserRepository;
+import ir.ac.kntu.backend.search.Cursor;
+import ir.ac.kntu.backend.search.SearchUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-import static ir.ac.kntu.backend.service.ThumbnailService.THUMB_HEIGHT;
-import static ir.ac.kntu.backend.service.ThumbnailService.THUMB_WIDTH;
 
 @Service
 @RequiredArgsConstructor
@@ -46,118 +75,127 @@ public class PostService implements IPostService {
     private final PostRepository postRepository;
     private final PostAttachmentRepository attachmentRepository;
     private final UserRepository userRepository;
-    private final ContentTypeDetector contentTypeDetector;
+    private final AttachmentUploadPipeline uploadPipeline;
+    private final TransactionTemplate transactionTemplate;
     private final CommunityRepository communityRepository;
+    private final ProfilePhotoRepository profilePhotoRepository;
+    private final CommunityImageRepository communityImageRepository;
     private final IBeanMapper mapper;
-    private final ThumbnailService thumbnailService;
-
-    private static final long MAX_ATTACHMENT_BYTES = 20L * 1024L * 1024L; // 20 MB per file
-    private final ThumbnailWorker thumbnailWorker;
-
+    private final IBlobStore blobStore;
+    private final ThumbnailRenditionRepository renditionRepository;
+    private final ThumbnailPlaceholderRegistry placeholderRegistry;
+
+    private final IThumbnailJobService thumbnailJobService;
+    private final IMembershipService membershipService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ApproximateCounts approximateCounts;
+    private final IPostRankingService rankingService;
+    private final IHomeFeedService homeFeedService;
+
+    // Deliberately not @Transactional: with open-in-view the first query would pin a connection for the rest of the
+    // request, so the parts are streamed to the blob store before the database is touched and only the inserts run
+    // in a transaction. Blobs of a request rejected afterwards stay behind unreferenced; they are content-addressed
+    // and may be shared, so they are not deleted here.
     @Override
-    @Transactional
     public PostDTO.PostCreateResponse createPost(PostDTO.PostCreateRequest rq, MultipartFile[] attachments) throws Exception {
 
         Long userId = ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
 
-
-        User author = userRepository.findById(userId)
-                .orElseThrow(() -> new CustomException(UserErrorCode.UserNotFound, userId.toString()));
-        Community community = communityRepository.findById(rq.getCommunityId())
-                .orElseThrow(() -> new CustomException(CommunityErrorCode.InvalidCommunityId, rq.getCommunityId().toString()));
-
-        log.warn("{}ownerID:{}", userId.toString(), community.getOwner().getId());
-        if (!community.getMembers().contains(author) && !community.getOwner().getId().equals(userId)) {
-            throw new CustomException(CommunityErrorCode.UserNotMemberOfCommunity, rq.getCommunityId().toString());
-        }
-
-        Post post = Post.builder()
-                .title(rq.getTitle())
-                .content(rq.getContent())
-                .community(community)
-                .author(author)
-                .build();
-        post = postRepository.save(post);
-
-        List<PostAttachment> createdAttachments = new ArrayList<>();
+        List<MultipartFile> files = new ArrayList<>();
+        List<AttachmentUploadPipeline.StoredUpload> uploads = new ArrayList<>();
         if (attachments != null) {
-
             for (MultipartFile file : attachments) {
                 if (file == null || file.isEmpty()) continue;
-                if (file.getSize() > MAX_ATTACHMENT_BYTES) {
-                    log.error("Attachment too large: {}", file.getOriginalFilename(), new IllegalArgumentException());
-                    throw new CustomException(PostAttachmentError.FileTooLarge, file.getOriginalFilename());
-                }
-
-                // detect content type
-                String detectedContentType = contentTypeDetector.detectContentType(file);
-
-                String raw = Objects.requireNonNull(file.getOriginalFilename());
-                String filename = UUID.randomUUID().toString().substring(0, 8) + "_" + raw;
-                PostAttachment att = PostAttachment.builder()
-                        .filename(filename)
-                        .contentType(detectedContentType)
-                        .size(file.getSize())
-                        .data(file.getBytes())
-                        .post(post)
-                        .thumbnailStatus(ThumbnailStatus.PENDING)
-                        .thumbnailVersion(0L)
-                        .build();
-
-                // uni-directional relationship creation before saving to DB
-                post.addAttachment(att);
-                createdAttachments.add(att);
+                files.add(file);
+                uploads.add(uploadPipeline.store(file));
             }
         }
 
-        post = postRepository.saveAndFlush(post);
+        return transactionTemplate.execute(status -> insertPost(userId, rq, files, uploads));
+    }
 
-        List<PostDTO.AttachmentDTO> attachmentDTOs = new ArrayList<>();
-        for (PostAttachment attachment : createdAttachments) {
+    @Override
+    @Transactional(readOnly = true)
+    public Page<PostDTO> listUserPosts(Long userId, Pageable pageable) {
+        Page<Post> posts = SearchUtil.page(pageable,
+                p -> postRepository.findFeedByAuthor_IdOrderByCreatedAtDesc(userId, p),
+                p -> postRepository.findFeedSliceByAuthor_IdOrderByCreatedAtDesc(userId, p),
+                () -> approximateCounts.get("posts:author:" + userId, () -> postRepository.countByAuthor_Id(userId)));
+        return withFeedDetails(posts.map(mapper::toFeedPostDTO));
+    }
 
-            PostDTO.AttachmentDTO dto = mapper.toAttachmentDTO(attachment);
-            attachmentDTOs.add(dto);
+    @Override
+    @Transactional(readOnly = true)
+    public Page<PostDTO> listPostsByCommunity(Long communityId, Pageable pageable) {
+        Page<Post> posts = SearchUtil.page(pageable,
+                p -> postRepository.findFeedByCommunity_IdOrderByCreatedAtDesc(communityId, p),
+                p -> postRepository.findFeedSliceByCommunity_IdOrderByCreatedAtDesc(communityId, p),
+                () -> approximateCounts.get("posts:community:" + communityId, () -> postRepository.countByCommunity_Id(communityId)));
+        return withFeedDetails(posts.map(mapper::toFeedPostDTO));
+    }
 
-            if(attachment.getContentType() != null && (attachment.getContentType().startsWith("image/") ||
-                    attachment.getContentType().startsWith("video/"))) {
+    @Override
+    @Transactional(readOnly = true)
+    public Page<PostDTO> listPosts(Pageable pageable) {
+        Page<Post> posts = SearchUtil.page(pageable, postRepository::findFeed, postRepository::findFeedSlice,
+                () -> approximateCounts.get("posts", postRepository::count));
+        return withFeedDetails(posts.map(mapper::toFeedPostDTO));
+    }
 
-                Long attachmentId = attachment.getId();
-                thumbnailWorker.generateAsync(attachmentId);
-            }
-        }
-        return new PostDTO.PostCreateResponse(post.getId(), post.getCreatedAt(), attachmentDTOs);
+    @Override
+    @Transactional(readOnly = true)
+    public Page<PostDTO> listHotPosts(Pageable pageable) {
+        return hotPage(null, pageable, () -> listPosts(pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<PostDTO> listUserPosts(Long userId, Pageable pageable) {
-        Page<Post> posts = postRepository.findByAuthor_IdOrderByCreatedAtDesc(userId, pageable);
-        return posts.map(mapper::toPostDTO);
+    public Page<PostDTO> listHotPostsByCommunity(Long communityId, Pageable pageable) {
+        return hotPage(communityId, pageable, () -> listPostsByCommunity(communityId, pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<PostDTO> listPostsByCommunity(Long communityId, Pageable pageable) {
-        Page<Post>  posts = postRepository.findByCommunity_IdOrderByCreatedAtDesc(communityId, pageable);
-        return posts.map(mapper::toPostDTO);
+    public SliceDTO<PostDTO> listHomeFeed(String cursor, int size) {
+        Long userId = ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
+        SliceDTO<Long> ids = homeFeedService.page(userId, cursor, size);
+        return new SliceDTO<>(postsInOrder(ids.getContent()), ids.isHasNext(), ids.getNextCursor());
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<PostDTO> listPosts(Pageable pageable) {
-        Page<Post> posts = postRepository.findAll(pageable);
-        return posts.map(mapper::toPostDTO);
+    public SliceDTO<PostDTO> listPostsAfter(String cursor, int size) {
+        return feedSlice(cursor, size, postRepository::findFeedFirst,
+                (c, limit) -> postRepository.findFeedAfter(c.getDateTime(0), c.getLong(1), limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SliceDTO<PostDTO> listPostsByCommunityAfter(Long communityId, String cursor, int size) {
+        return feedSlice(cursor, size, limit -> postRepository.findFeedByCommunityFirst(communityId, limit),
+                (c, limit) -> postRepository.findFeedByCommunityAfter(communityId, c.getDateTime(0), c.getLong(1), limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SliceDTO<PostDTO> listUserPostsAfter(Long userId, String cursor, int size) {
+        return feedSlice(cursor, size, limit -> postRepository.findFeedByAuthorFirst(userId, limit),
+                (c, limit) -> postRepository.findFeedByAuthorAfter(userId, c.getDateTime(0), c.getLong(1), limit));
     }
 
     @Transactional(readOnly = true)
     @Override
+    @Cacheable(cacheNames = CacheConfig.POSTS, key = "#postId")
     public PostDTO getPost(Long postId) {
-        return mapper.toPostDTO(postRepository.findById(postId)
+        PostDTO dto = mapper.toFeedPostDTO(postRepository.findFeedById(postId)
                 .orElseThrow(() -> new CustomException(PostErrorCode.PostNotFound, postId.toString())));
+        withFeedDetails(List.of(dto));
+        return dto;
     }
 
     //    @PreAuthorize("isAuthenticated()") in controller absolutely necessary to be authenticated in controller
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.POSTS, key = "#postId")
     @Override
     public void deletePost(Long postId) {
         Long userId = ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
@@ -169,11 +207,14 @@ public class PostService implements IPostService {
             throw new CustomException(PostErrorCode.Unauthorized, "Only the Original Author/Community Owner can Delete their Post");
         }
         postRepository.deleteById(postId);
+        eventPublisher.publishEvent(new UserContentChangedEvent(toBeDeleted.getAuthor().getId()));
+        eventPublisher.publishEvent(new PostRemovedEvent(postId, toBeDeleted.getCommunity() != null ? toBeDeleted.getCommunity().getId() : null));
     }
 
     // users may only update textual type posts,...for other types including attachments reupload is required
     //again absolutely necessary for the user to be authenticated by PreAuthorize
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.POSTS, key = "#postId")
     @Override
     public PostDTO updatePost(Long postId, PostDTO.PostUpdateRequest rq) {
 
@@ -187,55 +228,254 @@ public class PostService implements IPostService {
 
         mapper.updatePost(toBeUpdated, rq);
         postRepository.saveAndFlush(toBeUpdated);
-        return mapper.toPostDTO(toBeUpdated);
+        eventPublisher.publishEvent(new UserContentChangedEvent(userId));
+        PostDTO dto = mapper.toPostDTO(toBeUpdated);
+        withFeedDetails(List.of(dto));
+        return dto;
     }
 
     @Transactional(readOnly = true)
     @Override
     public PostDTO.AttachmentDTO getAttachmentMeta(Long postId, Long attachmentId) {
 
-        PostAttachment attachment = attachmentRepository.findByIdAndPost_Id(postId, attachmentId)
-                .orElseThrow(() -> new CustomException(PostAttachmentError.AttachmentOrTheCorrespondingPostNotFound, "attachmentId: " + attachmentId.toString() + " PostId: " + postId.toString()));
-
-        return mapper.toAttachmentDTO(attachment);
+        return mapper.toAttachmentDTO(findAttachmentMeta(postId, attachmentId));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Resource streamAttachment(Long postId, Long attachmentId) {
-        PostAttachment attachment = attachmentRepository.findByIdAndPost_Id(postId, attachmentId)
-                .orElseThrow(() -> new CustomException(PostAttachmentError.AttachmentOrTheCorrespondingPostNotFound, "attachmentId: " + attachmentId.toString() + " PostId: " + postId.toString()));
+        return openAttachment(postId, attachmentId).getResource();
+    }
 
-        if (attachment.getData() == null) throw new CustomException(PostAttachmentError.PostAttachmentCorrupted, attachmentId.toString());
+    @Override
+    @Transactional(readOnly = true)
+    public PostDTO.AttachmentContent openAttachment(Long postId, Long attachmentId) {
+        PostAttachmentRepository.AttachmentMeta attachment = findAttachmentMeta(postId, attachmentId);
 
-        return new ByteArrayResource(attachment.getData());
+        PostDTO.AttachmentDTO meta = mapper.toAttachmentDTO(attachment);
+
+        if (attachment.getBlobKey() != null) {
+            return new PostDTO.AttachmentContent(meta, blobStore.asResource(attachment.getBlobKey()), attachment.getBlobKey());
+        }
+
+        // not migrated to the blob store yet
+        byte[] data = attachmentRepository.findDataById(attachmentId);
+        if (data == null) throw new CustomException(PostAttachmentError.PostAttachmentCorrupted, attachmentId.toString());
+
+        return new PostDTO.AttachmentContent(meta, new ByteArrayResource(data), sha256Hex(data));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Resource streamAttachmentThumbnail(Long postId, Long attachmentId){
-        PostAttachment attachment = attachmentRepository.findByIdAndPost_Id(postId, attachmentId)
+        return openThumbnail(postId, attachmentId, null).getResource();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PostDTO.ThumbnailContent openThumbnail(Long postId, Long attachmentId, Integer width) {
+        PostAttachmentRepository.ThumbnailMeta attachment = attachmentRepository.findThumbnailMetaByIdAndPostId(attachmentId, postId)
                 .orElseThrow(() -> new CustomException(PostAttachmentError.AttachmentOrTheCorrespondingPostNotFound, "attachmentId: " + attachmentId.toString() + " PostId: " + postId.toString()));
 
-        if( attachment.getThumbnailData() != null && attachment.getThumbnailStatus() == ThumbnailStatus.DONE) {
-            return new  ByteArrayResource(attachment.getThumbnailData());
+        if (attachment.getThumbnailStatus() == ThumbnailStatus.DONE) {
+            if (width != null) {
+                ThumbnailRendition rendition = pickRendition(renditionRepository.findByAttachmentIdOrderByBoxWidthAsc(attachmentId), width);
+                if (rendition != null) {
+                    return new PostDTO.ThumbnailContent(blobStore.asResource(rendition.getBlobKey()), rendition.getContentType(), false, rendition.getBlobKey());
+                }
+            }
+            // thumbnails generated before renditions existed are always JPEG
+            if (attachment.getThumbnailBlobKey() != null) {
+                return new PostDTO.ThumbnailContent(blobStore.asResource(attachment.getThumbnailBlobKey()), defaultThumbnailType(attachmentId), false, attachment.getThumbnailBlobKey());
+            }
+            if (attachment.isInlineThumbnail()) {
+                return new PostDTO.ThumbnailContent(new ByteArrayResource(attachmentRepository.findThumbnailDataById(attachmentId)), MediaType.IMAGE_JPEG_VALUE, false,
+                        attachmentId + "-v" + attachment.getThumbnailVersion());
+            }
         }
 
-        try {
-            return new ByteArrayResource(thumbnailService.createPlaceholderBytes(THUMB_WIDTH, THUMB_HEIGHT));
-        } catch (IOException e) {
-            throw new CustomException(PostAttachmentError.PostAttachmentThumbnailPlaceholderGenerationFailure, attachmentId.toString());
-        }
+        return placeholderRegistry.get(attachment.getContentType(), width);
     }
 
     @Override
+    @Transactional
     public boolean scheduleThumbnailGenerationForPost(Long postId) {
-        List<PostAttachment> list = attachmentRepository.findByPost_Id(postId);
-        for (PostAttachment a : list) {
+        List<PostAttachmentRepository.ThumbnailMeta> list = attachmentRepository.findThumbnailMetaByPostId(postId);
+        for (PostAttachmentRepository.ThumbnailMeta a : list) {
+            // only images and videos get thumbnails; other types would just fail every retry
+            String type = a.getContentType();
+            if (type == null || !(type.startsWith("image/") || type.startsWith("video/"))) continue;
             if (a.getThumbnailStatus() == ThumbnailStatus.PENDING || a.getThumbnailStatus() == ThumbnailStatus.FAILED) {
-                thumbnailWorker.generateAsync(a.getId());
+                thumbnailJobService.enqueue(a.getId());
             }
         }
         return true;
     }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private PostDTO.PostCreateResponse insertPost(Long userId, PostDTO.PostCreateRequest rq, List<MultipartFile> files,
+                                                  List<AttachmentUploadPipeline.StoredUpload> uploads) {
+
+        User author = userRepository.findById(userId)
+                .orElseThrow(() -> new CustomException(UserErrorCode.UserNotFound, userId.toString()));
+        Community community = communityRepository.findById(rq.getCommunityId())
+                .orElseThrow(() -> new CustomException(CommunityErrorCode.InvalidCommunityId, rq.getCommunityId().toString()));
+
+        if (!community.getOwner().getId().equals(userId) && !membershipService.isMember(userId, community.getId())) {
+            throw new CustomException(CommunityErrorCode.UserNotMemberOfCommunity, rq.getCommunityId().toString());
+        }
+
+        Post post = Post.builder()
+                .title(rq.getTitle())
+                .content(rq.getContent())
+                .community(community)
+                .author(author)
+                .build();
+        post = postRepository.save(post);
+
+        List<PostAttachment> createdAttachments = new ArrayList<>();
+        for (int i = 0; i < uploads.size(); i++) {
+            AttachmentUploadPipeline.StoredUpload upload = uploads.get(i);
+
+            String raw = Objects.requireNonNull(files.get(i).getOriginalFilename());
+            String filename = UUID.randomUUID().toString().substring(0, 8) + "_" + raw;
+
+            PostAttachment att = PostAttachment.builder()
+                    .filename(filename)
+                    .contentType(upload.contentType())
+                    .size(upload.size())
+                    .blobKey(upload.blobKey())
+                    .post(post)
+                    .thumbnailStatus(ThumbnailStatus.PENDING)
+                    .thumbnailVersion(0L)
+                    .build();
+
+            // uni-directional relationship creation before saving to DB; persisted directly so that this instance
+            // (not a merge copy) receives the generated id used for the thumbnail job below
+            post.addAttachment(att);
+            createdAttachments.add(attachmentRepository.save(att));
+        }
+
+        post = postRepository.saveAndFlush(post);
+        eventPublisher.publishEvent(new UserContentChangedEvent(userId));
+        eventPublisher.publishEvent(new PostActivityEvent(List.of(post.getId())));
+
+        List<PostDTO.AttachmentDTO> attachmentDTOs = new ArrayList<>();
+        for (PostAttachment attachment : createdAttachments) {
+
+            PostDTO.AttachmentDTO dto = mapper.toAttachmentDTO(attachment);
+            attachmentDTOs.add(dto);
+
+            if(attachment.getContentType() != null && (attachment.getContentType().startsWith("image/") ||
+                    attachment.getContentType().startsWith("video/"))) {
+
+                Long attachmentId = attachment.getId();
+                thumbnailJobService.enqueue(attachmentId);
+            }
+        }
+        return new PostDTO.PostCreateResponse(post.getId(), post.getCreatedAt(), attachmentDTOs);
+    }
+
+    // smallest rendition at least as wide as requested, else the largest one there is
+    private static ThumbnailRendition pickRendition(List<ThumbnailRendition> renditions, int width) {
+        ThumbnailRendition picked = null;
+        for (ThumbnailRendition r : renditions) {
+            picked = r;
+            if (r.getBoxWidth() >= width) break;
+        }
+        return picked;
+    }
+
+    private String defaultThumbnailType(Long attachmentId) {
+        return renditionRepository.findByAttachmentIdOrderByBoxWidthAsc(attachmentId).stream()
+                .findFirst()
+                .map(ThumbnailRendition::getContentType)
+                .orElse(MediaType.IMAGE_JPEG_VALUE);
+    }
+
+    private PostAttachmentRepository.AttachmentMeta findAttachmentMeta(Long postId, Long attachmentId) {
+        return attachmentRepository.findMetaByIdAndPostId(attachmentId, postId)
+                .orElseThrow(() -> new CustomException(PostAttachmentError.AttachmentOrTheCorrespondingPostNotFound, "attachmentId: " + attachmentId.toString() + " PostId: " + postId.toString()));
+    }
+
+    private SliceDTO<PostDTO> feedSlice(String cursor, int size, Function<Pageable, List<Post>> first,
+                                        BiFunction<Cursor, Pageable, List<Post>> after) {
+        List<Post> rows = cursor == null || cursor.isBlank()
+                ? first.apply(SearchUtil.limit(size))
+                : after.apply(Cursor.decode(cursor, 2), SearchUtil.limit(size));
+
+        SliceDTO<PostDTO> slice = SearchUtil.slice(rows, size, mapper::toFeedPostDTO, p -> Cursor.encode(p.getCreatedAt(), p.getId()));
+        withFeedDetails(slice.getContent());
+        return slice;
+    }
+
+    // the ranked ids come from Redis, the posts from one query; without Redis the unranked listing is served
+    private Page<PostDTO> hotPage(Long communityId, Pageable pageable, Supplier<Page<PostDTO>> fallback) {
+        Page<Long> ids;
+        try {
+            ids = rankingService.hotPostIds(communityId, pageable);
+        } catch (RuntimeException ex) {
+            log.warn("Hot ranking unavailable, serving the unranked listing: {}", ex.getMessage());
+            return fallback.get();
+        }
+
+        return new PageImpl<>(postsInOrder(ids.getContent()), pageable, ids.getTotalElements());
+    }
+
+    // the posts of the given ids in that order; ids of posts deleted in the meantime are skipped
+    private List<PostDTO> postsInOrder(List<Long> ids) {
+        Map<Long, Post> byId = new HashMap<>();
+        for (Post p : postRepository.findFeedByIdIn(ids)) {
+            byId.put(p.getId(), p);
+        }
+        List<PostDTO> content = ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(mapper::toFeedPostDTO)
+                .toList();
+        return withFeedDetails(content);
+    }
+
+    // one metadata query each for the attachments, author photos and community avatars of every post on the page,
+    // instead of initializing collections and image entities post by post
+    private <C extends Iterable<PostDTO>> C withFeedDetails(C posts) {
+        Map<Long, PostDTO> byId = new HashMap<>();
+        Map<Long, List<UserDTO.MinimalView>> authors = new HashMap<>();
+        Map<Long, List<CommunityDTO.MinimalView>> communities = new HashMap<>();
+        for (PostDTO p : posts) {
+            p.setAttachments(new ArrayList<>());
+            byId.put(p.getId(), p);
+            if (p.getAuthor() != null) authors.computeIfAbsent(p.getAuthor().getId(), k -> new ArrayList<>()).add(p.getAuthor());
+            if (p.getCommunity() != null) communities.computeIfAbsent(p.getCommunity().getId(), k -> new ArrayList<>()).add(p.getCommunity());
+        }
+        if (byId.isEmpty()) return posts;
+
+        for (PostAttachmentRepository.AttachmentMeta meta : attachmentRepository.findMetaByPostIdIn(byId.keySet())) {
+            byId.get(meta.getPostId()).getAttachments().add(mapper.toAttachmentDTO(meta));
+        }
+        if (!authors.isEmpty()) {
+            for (ProfilePhotoRepository.ImageMeta photo : profilePhotoRepository.findMetaByUserIdIn(authors.keySet())) {
+                ProfilePhotoDTO dto = new ProfilePhotoDTO(photo.getId(), photo.getSize() == null ? 0 : photo.getSize(),
+                        "/api/users/" + photo.getOwnerId() + "/getPhoto");
+                authors.get(photo.getOwnerId()).forEach(a -> a.setProfilePhoto(dto));
+            }
+        }
+        if (!communities.isEmpty()) {
+            for (CommunityImageRepository.ImageMeta avatar : communityImageRepository.findAvatarMetaByCommunityIdIn(communities.keySet())) {
+                CommunityImageDTO dto = new CommunityImageDTO(avatar.getId(), avatar.getSize(),
+                        "/api/communities/" + avatar.getOwnerId() + "/avatar");
+                communities.get(avatar.getOwnerId()).forEach(c -> c.setAvatarImage(dto));
+            }
+        }
+        return posts;
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -1,12 +1,23 @@
 package ir.ac.kntu.backend.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
+import ir.ac.kntu.backend.Properties;
 import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
 import ir.ac.kntu.backend.iservice.ISecurityService;
+import ir.ac.kntu.backend.iservice.ITokenRevocationService;
 import ir.ac.kntu.backend.model.RedisToken;
 import ir.ac.kntu.backend.repository.RedisTokenRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -14,22 +25,70 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-
+/**
+ * Sessions are stored in Redis as signed JWTs. A session verified once is kept in a bounded local cache until its
+ * JWT expires (capped by jwt.session-cache.ttl-ms), so an authenticated request costs neither a Redis round trip nor
+ * an HMAC check. Logout removes the Redis entry and broadcasts the session id so every node drops its copy; the TTL
+ * cap bounds how long a missed broadcast can keep a logged-out session alive.
+ * With cookie-props.security.token-mode=stateless the JWT itself is the credential and nothing is stored; logout,
+ * password changes and disabled accounts are enforced by the locally mirrored revocation list instead.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class SecurityService implements ISecurityService {
+public class SecurityService implements ISecurityService, MessageListener {
 
 
     private final RedisTokenRepository redisTokenRepository;
     private static final String USER_ID_CLAIM = "uid";
     private static final String ROLE_CLAIM = "role";
     private final SecretKey secretKey;
+    private final JwtParser jwtParser;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String invalidationChannel;
+    private final Cache<String, VerifiedSession> verifiedSessions;
+    private final ITokenRevocationService revocationService;
+    private final Properties properties;
+    private final long tokenLifetimeMillis;
+
+    private record VerifiedSession(SecurityAuthenticationToken authToken, Date issuedAt, long expiresAtMillis) {
+    }
+
+    public SecurityService(RedisTokenRepository redisTokenRepository,
+                           SecretKey secretKey,
+                           JwtParser jwtParser,
+                           StringRedisTemplate redisTemplate,
+                           RedisMessageListenerContainer listenerContainer,
+                           ITokenRevocationService revocationService,
+                           Properties properties,
+                           @Value("${jwt.lifetime-ms:86400000}") long tokenLifetimeMillis,
+                           @Value("${jwt.session-cache.max-size:100000}") long maxSize,
+                           @Value("${jwt.session-cache.ttl-ms:300000}") long ttlMillis,
+                           @Value("${jwt.session-cache.invalidation-channel:session-invalidation}") String invalidationChannel) {
+        this.redisTokenRepository = redisTokenRepository;
+        this.secretKey = secretKey;
+        this.jwtParser = jwtParser;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.invalidationChannel = invalidationChannel;
+        this.revocationService = revocationService;
+        this.properties = properties;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.verifiedSessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new SessionExpiry(ttlMillis))
+                .build();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(invalidationChannel));
+    }
 
 
     // ------------------------------
@@ -40,40 +99,21 @@ public class SecurityService implements ISecurityService {
     }
 
     @Override
-    public void authenticateByToken(String redisId, SecurityContext context) {
-
-        Optional<RedisToken> redisTokenOptional = redisTokenRepository.findById(redisId);
-        RedisToken redisToken;
-        if(redisTokenOptional.isPresent())
-            redisToken = redisTokenOptional.get();
-        else return;
+    public void authenticateByToken(String credential, SecurityContext context) {
 
+        VerifiedSession cached = verifiedSessions.getIfPresent(credential);
+        if (cached == null) {
+            cached = verify(credential);
+            if (cached == null) return;
+            verifiedSessions.put(credential, cached);
+        }
 
-        final Claims claims;
-        try {
-
-            JwtParser parser = Jwts.parserBuilder().setSigningKey(secretKey).build();
-
-            Jws<Claims> jws = parser.parseClaimsJws(redisToken.getTokenStr());
-            claims = jws.getBody();
-
-        } catch (Exception e) {
-            log.warn("SecurityService.authenticateByToken - JWT Parse: ({}) {}",
-                    e.getClass().getSimpleName(), e.getMessage());
+        final SecurityAuthenticationToken authToken = cached.authToken();
+        if (revocationService.isRevoked(authToken.getSessionId(), authToken.getUserId(), cached.issuedAt())) {
+            log.debug("Rejected revoked token: userId={} jti={}", authToken.getUserId(), authToken.getSessionId());
             return;
         }
 
-        final Long userId = assertValue(claims.get(USER_ID_CLAIM, Long.class), "Invalid Token: No UID");
-        final List<String> roleList = assertValue(claims.get(ROLE_CLAIM, List.class), "Invalid Token: No Role");
-
-        log.debug("AuthenticateByToken: userId=[{}] role=[{}]", userId, roleList);
-
-        final SecurityAuthenticationToken authToken = new SecurityAuthenticationToken(
-                redisToken.getTokenStr(),
-                userId,
-                redisToken.getId(),
-                roleList.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList()));
-
         context.setAuthentication(authToken);
 
         log.debug("Authenticated userId={} authorities={}",
@@ -88,10 +128,11 @@ public class SecurityService implements ISecurityService {
         claims.put(USER_ID_CLAIM, userId);
         claims.put(ROLE_CLAIM, Collections.singletonList(role));
 
-        final Date expiration = Date.from(Instant.now().plus(1, ChronoUnit.DAYS));
+        final Date expiration = new Date(System.currentTimeMillis() + tokenLifetimeMillis);
 
         final String jwtToken = Jwts.builder()
                 .setClaims(claims)
+                .setId(sessionId)
                 .setIssuedAt(new Date())
                 .setExpiration(expiration)
                 .signWith(secretKey)
@@ -105,6 +146,9 @@ public class SecurityService implements ISecurityService {
 
         SecurityContextHolder.getContext().setAuthentication(authToken);
 
+        // the signed token itself is the credential, nothing to store
+        if (isStateless()) return jwtToken;
+
         RedisToken redisToken = new RedisToken();
         redisToken.setId(sessionId);
         redisToken.setTokenStr(jwtToken);
@@ -117,7 +161,17 @@ public class SecurityService implements ISecurityService {
     public boolean logout() {
 
         try {
-            redisTokenRepository.deleteById(((SecurityAuthenticationToken)SecurityContextHolder.getContext().getAuthentication()).getSessionId());
+            SecurityAuthenticationToken current = (SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
+            if (isStateless()) {
+                Date expiresAt = jwtParser.parseClaimsJws(current.getToken()).getBody().getExpiration();
+                revocationService.revokeToken(current.getSessionId(), expiresAt);
+                verifiedSessions.invalidate(current.getToken());
+                return true;
+            }
+            String sessionId = current.getSessionId();
+            redisTokenRepository.deleteById(sessionId);
+            verifiedSessions.invalidate(sessionId);
+            redisTemplate.convertAndSend(invalidationChannel, sessionId);
             return true;
         } catch (Exception e) {
             return false;
@@ -125,8 +179,62 @@ public class SecurityService implements ISecurityService {
 
     }
 
+    @Override
+    public void revokeAllTokens(Long userId) {
+        revocationService.revokeAllOf(userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        verifiedSessions.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
     // ------------------------------
 
+    // session mode: the credential is a session id whose JWT is kept in Redis; stateless mode: the credential is the JWT
+    private VerifiedSession verify(String credential) {
+
+        final String tokenStr;
+        if (isStateless()) {
+            tokenStr = credential;
+        } else {
+            Optional<RedisToken> redisTokenOptional = redisTokenRepository.findById(credential);
+            if (redisTokenOptional.isEmpty()) return null;
+            tokenStr = redisTokenOptional.get().getTokenStr();
+        }
+
+        final Claims claims;
+        try {
+
+            Jws<Claims> jws = jwtParser.parseClaimsJws(tokenStr);
+            claims = jws.getBody();
+
+        } catch (Exception e) {
+            log.warn("SecurityService.authenticateByToken - JWT Parse: ({}) {}",
+                    e.getClass().getSimpleName(), e.getMessage());
+            return null;
+        }
+
+        final Long userId = assertValue(claims.get(USER_ID_CLAIM, Long.class), "Invalid Token: No UID");
+        final List<String> roleList = assertValue(claims.get(ROLE_CLAIM, List.class), "Invalid Token: No Role");
+        final Date expiration = assertValue(claims.getExpiration(), "Invalid Token: No Expiration");
+
+        log.debug("AuthenticateByToken: userId=[{}] role=[{}]", userId, roleList);
+
+        final SecurityAuthenticationToken authToken = new SecurityAuthenticationToken(
+                tokenStr,
+                userId,
+                // in session mode this is the Redis id, which is also the jti of every token issued since jtis were added
+                isStateless() ? claims.getId() : credential,
+                roleList.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList()));
+
+        return new VerifiedSession(authToken, claims.getIssuedAt(), expiration.getTime());
+    }
+
+    private boolean isStateless() {
+        return properties.getSecurity().getTokenMode() == Properties.ETokenMode.stateless;
+    }
+
     private <T> T assertValue(T val, String message) {
         if (val == null) {
             throw new BadCredentialsException(message);
@@ -134,4 +242,28 @@ public class SecurityService implements ISecurityService {
         return val;
     }
 
+    // an entry lives until its JWT expires, but never longer than the configured cap
+    private static final class SessionExpiry implements Expiry<String, VerifiedSession> {
+        private final long ttlMillis;
+
+        private SessionExpiry(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedSession value, long currentTime) {
+            long remaining = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(remaining, ttlMillis)));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedSession value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedSession value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.event.ThumbnailReadyEvent;
+import ir.ac.kntu.backend.iservice.IPostService;
+import ir.ac.kntu.backend.model.ThumbnailStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-poll support for thumbnail completion. A waiting request is parked as a DeferredResult (no servlet thread
+ * held) and completed when this node commits the thumbnail, or answered with the current state on timeout, which
+ * also covers thumbnails finished by another node.
+ */
+@Slf4j
+@Service
+public class ThumbnailCompletionNotifier {
+
+    private record Waiter(Long postId, DeferredResult<PostDTO.AttachmentDTO> result) {
+    }
+
+    private final IPostService postService;
+    private final int maxWaiters;
+
+    private final ConcurrentHashMap<Long, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public ThumbnailCompletionNotifier(IPostService postService,
+                                       @Value("${thumbnails.long-poll.max-waiters:10000}") int maxWaiters) {
+        this.postService = postService;
+        this.maxWaiters = maxWaiters;
+    }
+
+    public DeferredResult<PostDTO.AttachmentDTO> await(Long postId, Long attachmentId, long timeoutMillis) {
+        PostDTO.AttachmentDTO current = postService.getAttachmentMeta(postId, attachmentId);
+
+        // already settled, or too many parked requests: answer right away and let the client come back
+        if (isSettled(current) || waiting.get() >= maxWaiters) {
+            return completed(current);
+        }
+
+        DeferredResult<PostDTO.AttachmentDTO> result = new DeferredResult<>(timeoutMillis);
+        Waiter waiter = new Waiter(postId, result);
+        waiters.computeIfAbsent(attachmentId, k -> ConcurrentHashMap.newKeySet()).add(waiter);
+        waiting.incrementAndGet();
+
+        result.onCompletion(() -> remove(attachmentId, waiter));
+        result.onTimeout(() -> result.setResult(metaOr(postId, attachmentId, current)));
+
+        // the thumbnail may have been committed between the first read and registering
+        PostDTO.AttachmentDTO again = postService.getAttachmentMeta(postId, attachmentId);
+        if (isSettled(again)) {
+            result.setResult(again);
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onThumbnailReady(ThumbnailReadyEvent event) {
+        Set<Waiter> parked = waiters.get(event.attachmentId());
+        if (parked == null || parked.isEmpty()) return;
+
+        // every waiter of an attachment belongs to the same post, so one read serves them all
+        Waiter first = parked.iterator().next();
+        PostDTO.AttachmentDTO meta = metaOr(first.postId(), event.attachmentId(), null);
+        for (Waiter w : parked) {
+            w.result().setResult(meta);
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private void remove(Long attachmentId, Waiter waiter) {
+        waiters.computeIfPresent(attachmentId, (k, set) -> {
+            if (set.remove(waiter)) waiting.decrementAndGet();
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private PostDTO.AttachmentDTO metaOr(Long postId, Long attachmentId, PostDTO.AttachmentDTO fallback) {
+        try {
+            return postService.getAttachmentMeta(postId, attachmentId);
+        } catch (RuntimeException ex) {
+            log.warn("Could not read attachment {} for a thumbnail waiter: {}", attachmentId, ex.getMessage());
+            return fallback;
+        }
+    }
+
+    private static boolean isSettled(PostDTO.AttachmentDTO meta) {
+        return meta.getThumbnailStatus() == ThumbnailStatus.DONE || meta.getThumbnailStatus() == ThumbnailStatus.FAILED;
+    }
+
+    private static DeferredResult<PostDTO.AttachmentDTO> completed(PostDTO.AttachmentDTO meta) {
+        DeferredResult<PostDTO.AttachmentDTO> result = new DeferredResult<>();
+        result.setResult(meta);
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.event.ThumbnailReadyEvent;
+import ir.ac.kntu.backend.iservice.IThumbnailJobService;
+import ir.ac.kntu.backend.model.ThumbnailJob;
+import ir.ac.kntu.backend.model.ThumbnailStatus;
+import ir.ac.kntu.backend.repository.PostAttachmentRepository;
+import ir.ac.kntu.backend.repository.ThumbnailJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThumbnailJobService implements IThumbnailJobService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ThumbnailJobRepository jobRepository;
+    private final PostAttachmentRepository attachmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${thumbnails.lease-ms:300000}")
+    private long leaseMillis;
+
+    @Value("${thumbnails.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${thumbnails.backoff-base-ms:5000}")
+    private long backoffBaseMillis;
+
+    @Value("${thumbnails.backoff-max-ms:1800000}")
+    private long backoffMaxMillis;
+
+    @Override
+    @Transactional
+    public void enqueue(Long attachmentId) {
+        Instant now = Instant.now();
+        ThumbnailJob job = jobRepository.findByAttachmentId(attachmentId)
+                .orElseGet(() -> ThumbnailJob.builder().attachmentId(attachmentId).build());
+
+        // a running job will pick up the current content anyway
+        if (job.getStatus() == ThumbnailStatus.IN_PROGRESS) return;
+
+        job.setStatus(ThumbnailStatus.PENDING);
+        job.setAttempts(0);
+        job.setNextAttemptAt(now);
+        job.setEnqueuedAt(now);
+        job.setLastError(null);
+        jobRepository.save(job);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<ThumbnailJob> claim(String workerId, int max) {
+        Instant now = Instant.now();
+        List<ThumbnailJob> jobs = jobRepository.findClaimable(ThumbnailStatus.PENDING, now, PageRequest.of(0, max));
+        for (ThumbnailJob job : jobs) {
+            job.setStatus(ThumbnailStatus.IN_PROGRESS);
+            job.setLeaseOwner(workerId);
+            job.setLeaseExpiresAt(now.plusMillis(leaseMillis));
+            job.setAttempts(job.getAttempts() + 1);
+        }
+        return jobRepository.saveAll(jobs);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void complete(ThumbnailJob job) {
+        if (jobRepository.deleteLeased(job.getId(), job.getLeaseOwner()) == 0) {
+            log.warn("Thumbnail job {} finished after its lease was taken over", job.getId());
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public FailOutcome fail(ThumbnailJob job, String error) {
+        ThumbnailJob current = jobRepository.findById(job.getId()).orElse(null);
+        if (current == null || !job.getLeaseOwner().equals(current.getLeaseOwner())) {
+            return FailOutcome.LEASE_LOST;
+        }
+
+        current.setLeaseOwner(null);
+        current.setLeaseExpiresAt(null);
+        current.setLastError(error == null ? null : error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH)));
+
+        if (current.getAttempts() >= maxAttempts) {
+            current.setStatus(ThumbnailStatus.FAILED);
+            attachmentRepository.updateThumbnailStatus(current.getAttachmentId(), ThumbnailStatus.FAILED);
+            eventPublisher.publishEvent(new ThumbnailReadyEvent(current.getAttachmentId(), ThumbnailStatus.FAILED));
+            return FailOutcome.FAILED;
+        }
+
+        current.setStatus(ThumbnailStatus.PENDING);
+        current.setNextAttemptAt(Instant.now().plus(backoff(current.getAttempts())));
+        return FailOutcome.RETRY;
+    }
+
+    @Override
+    @Transactional
+    public int releaseExpiredLeases() {
+        return jobRepository.releaseExpiredLeases(ThumbnailStatus.PENDING, ThumbnailStatus.IN_PROGRESS, Instant.now());
+    }
+
+    @Override
+    @Transactional
+    public int enqueueOrphans(int max) {
+        List<Long> ids = attachmentRepository.findIdsMissingThumbnailJob(
+                List.of(ThumbnailStatus.PENDING, ThumbnailStatus.IN_PROGRESS), PageRequest.of(0, max));
+        ids.forEach(this::enqueue);
+        return ids.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long queueDepth() {
+        return jobRepository.countByStatus(ThumbnailStatus.PENDING);
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    // base * 2^(attempts - 1), capped
+    private Duration backoff(int attempts) {
+        long factor = 1L << Math.min(Math.max(attempts - 1, 0), 20);
+        return Duration.ofMillis(Math.min(backoffBaseMillis * factor, backoffMaxMillis));
+    }
+}
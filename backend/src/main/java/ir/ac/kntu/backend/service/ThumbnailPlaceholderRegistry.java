@@ -0,0 +1,94 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.DTO.PostDTO;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static ir.ac.kntu.backend.service.ThumbnailService.THUMB_HEIGHT;
+import static ir.ac.kntu.backend.service.ThumbnailService.THUMB_WIDTH;
+
+/**
+ * Placeholder images rendered once at startup, one per (content category, rendition width), so a client polling a
+ * pending thumbnail costs a map lookup and, with its ETag, usually just a 304.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThumbnailPlaceholderRegistry {
+
+    public enum Category {
+        IMAGE("processing..."),
+        VIDEO("processing video..."),
+        OTHER("no preview");
+
+        private final String label;
+
+        Category(String label) {
+            this.label = label;
+        }
+
+        public static Category of(String contentType) {
+            if (contentType == null) return OTHER;
+            if (contentType.startsWith("image/")) return IMAGE;
+            if (contentType.startsWith("video/")) return VIDEO;
+            return OTHER;
+        }
+    }
+
+    private record Placeholder(byte[] bytes, String etag) {
+    }
+
+    private final ThumbnailService thumbnailService;
+
+    @Value("${thumbnails.rendition-widths:160,320,640}")
+    private List<Integer> renditionWidths;
+
+    private final Map<Category, TreeMap<Integer, Placeholder>> placeholders = new EnumMap<>(Category.class);
+
+    @PostConstruct
+    public void render() {
+        SortedSet<Integer> widths = new TreeSet<>(renditionWidths);
+        widths.add(THUMB_WIDTH);
+        for (Category category : Category.values()) {
+            TreeMap<Integer, Placeholder> bySize = new TreeMap<>();
+            for (int w : widths) {
+                bySize.put(w, create(category, w, w * THUMB_HEIGHT / THUMB_WIDTH));
+            }
+            placeholders.put(category, bySize);
+        }
+        log.info("Rendered {} thumbnail placeholders", placeholders.size() * widths.size());
+    }
+
+    // width null means the default thumbnail size
+    public PostDTO.ThumbnailContent get(String contentType, Integer width) {
+        TreeMap<Integer, Placeholder> bySize = placeholders.get(Category.of(contentType));
+        Map.Entry<Integer, Placeholder> entry = bySize.ceilingEntry(width == null ? THUMB_WIDTH : width);
+        Placeholder p = entry != null ? entry.getValue() : bySize.lastEntry().getValue();
+        return new PostDTO.ThumbnailContent(new ByteArrayResource(p.bytes()), MediaType.IMAGE_JPEG_VALUE, true, p.etag());
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private Placeholder create(Category category, int w, int h) {
+        try {
+            byte[] bytes = thumbnailService.createPlaceholderBytes(w, h, category.label);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return new Placeholder(bytes, "placeholder-" + HexFormat.of().formatHex(digest, 0, 8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
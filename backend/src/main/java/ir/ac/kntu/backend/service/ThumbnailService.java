@@ -1,15 +1,27 @@
 package ir.ac.kntu.backend.service;
 
 import ir.ac.kntu.backend.CustomException;
+import ir.ac.kntu.backend.config.CacheConfig;
 import ir.ac.kntu.backend.error.PostAttachmentError;
+import ir.ac.kntu.backend.event.ThumbnailReadyEvent;
+import ir.ac.kntu.backend.iservice.IBlobStore;
+import ir.ac.kntu.backend.iservice.IImageEncoder;
 import ir.ac.kntu.backend.iservice.IThumbnailService;
-import ir.ac.kntu.backend.model.PostAttachment;
+import ir.ac.kntu.backend.iservice.IVideoFrameExtractor;
+import ir.ac.kntu.backend.model.ThumbnailRendition;
 import ir.ac.kntu.backend.model.ThumbnailStatus;
 import ir.ac.kntu.backend.repository.PostAttachmentRepository;
+import ir.ac.kntu.backend.repository.ThumbnailRenditionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
@@ -17,8 +29,12 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -27,86 +43,83 @@ public class ThumbnailService implements IThumbnailService {
 
     //TODO: bug hunting!
     private final PostAttachmentRepository attachmentRepository;
+    private final IBlobStore blobStore;
+    private final IVideoFrameExtractor videoFrameExtractor;
+    private final ThumbnailRenditionRepository renditionRepository;
+    private final List<IImageEncoder> encoders;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${thumbnails.encoder:jpeg}")
+    private String encoderName;
+
+    @Value("${thumbnails.rendition-widths:160,320,640}")
+    private List<Integer> renditionWidths;
 
     public static final int THUMB_WIDTH = 320;
     public static final int THUMB_HEIGHT = 180;
 
 
 
-    @Transactional
+    /*
+     * Three steps so no connection or row lock is held while ffmpeg runs or images are encoded: a short transaction
+     * marks the attachment IN_PROGRESS and reads its metadata, the renditions are rendered and written to the blob
+     * store outside any transaction, and a second short transaction records them.
+     */
     @Override
     public boolean generateThumbnailForAttachmentSync(Long attachmentId) throws Exception {
 
-        PostAttachment att = attachmentRepository.findById(attachmentId)
-                .orElseThrow(() -> new CustomException(PostAttachmentError.AttachmentOrTheCorrespondingPostNotFound, attachmentId.toString()));
-
-        att.setThumbnailStatus(ThumbnailStatus.IN_PROGRESS);
-        attachmentRepository.saveAndFlush(att);
-
-        // image
-        if (att.getContentType() != null && att.getContentType().startsWith("image/")) {
-            try {
-                byte[] thumb = generateImageThumbnail(att.getData(), THUMB_WIDTH, THUMB_HEIGHT);
-                att.setThumbnailData(thumb);
-                att.setThumbnailSize((long) thumb.length);
-                att.setThumbnailStatus(ThumbnailStatus.DONE);
-                att.setThumbnailVersion(att.getThumbnailVersion() + 1);
-                attachmentRepository.saveAndFlush(att);
-                return true;
-            } catch (Exception ex) {
-                att.setThumbnailStatus(ThumbnailStatus.FAILED);
-                attachmentRepository.saveAndFlush(att);
-                throw new CustomException(PostAttachmentError.ThumbnailGenerationFailed, ex.getMessage());
+        PostAttachmentRepository.AttachmentMeta att = transactionTemplate.execute(status -> begin(attachmentId));
+
+        String contentType = att.getContentType();
+        boolean image = contentType != null && contentType.startsWith("image/");
+        boolean video = contentType != null && contentType.startsWith("video/");
+        if (!image && !video) return false;
+
+        long version = att.getThumbnailVersion() + 1;
+        List<ThumbnailRendition> rendered;
+        try {
+            BufferedImage src;
+            if (image) {
+                src = decode(readOriginal(att));
+            } else {
+                // video -> extract a frame with ffmpeg (must be installed on host)
+                Resource videoResource = att.getBlobKey() != null
+                        ? blobStore.asResource(att.getBlobKey())
+                        : new ByteArrayResource(attachmentRepository.findDataById(att.getId()));
+                src = decode(videoFrameExtractor.extractFrame(videoResource));
             }
+            rendered = render(att.getId(), src, version);
+        } catch (IOException ex) {
+            throw new CustomException(PostAttachmentError.ThumbnailGenerationFailed, ex.getMessage());
         }
 
-        // video -> extract frame using ffmpeg binary (must be installed on host)
-        if (att.getContentType() != null && att.getContentType().startsWith("video/")) {
-            Path tmpVideo = Files.createTempFile("video-", "-" + att.getId());
-            try {
-                Files.write(tmpVideo, att.getData());
-                Path tmpThumb = Files.createTempFile("thumb-", ".jpg");
-                ProcessBuilder pb = new ProcessBuilder(
-                        "ffmpeg", "-y", "-i", tmpVideo.toString(),
-                        "-ss", "00:00:01.000", "-vframes", "1", "-q:v", "2", tmpThumb.toString()
-                );
-                pb.redirectErrorStream(true);
-                Process p = pb.start();
-                int exit = p.waitFor();
-
-                if (exit != 0) {
-                    att.setThumbnailStatus(ThumbnailStatus.FAILED);
-                    attachmentRepository.saveAndFlush(att);
-                    return false;
-                }
-                byte[] thumbBytes = Files.readAllBytes(tmpThumb);
-                att.setThumbnailData(thumbBytes);
-                att.setThumbnailSize((long) thumbBytes.length);
-                att.setThumbnailStatus(ThumbnailStatus.DONE);
-                att.setThumbnailVersion(att.getThumbnailVersion() + 1);
-                attachmentRepository.saveAndFlush(att);
-                try { Files.deleteIfExists(tmpThumb); } catch (Exception ignore) {}
-                return true;
-            } finally {
-                try { Files.deleteIfExists(tmpVideo); } catch (Exception ignore) {}
-            }
-        }
-
-        att.setThumbnailStatus(ThumbnailStatus.FAILED);
-        attachmentRepository.saveAndFlush(att);
-        return false;
+        transactionTemplate.executeWithoutResult(status -> {
+            storeRenditions(att.getId(), rendered, version);
+            eventPublisher.publishEvent(new ThumbnailReadyEvent(att.getId(), ThumbnailStatus.DONE));
+            // the cached post still lists the attachment as pending; the eviction is applied on commit
+            Cache posts = cacheManager.getCache(CacheConfig.POSTS);
+            if (posts != null) posts.evict(att.getPostId());
+        });
+        return true;
     }
 
 
     @Override
     public byte[] createPlaceholderBytes(int w, int h) throws IOException {
+        return createPlaceholderBytes(w, h, "processing...");
+    }
+
+    @Override
+    public byte[] createPlaceholderBytes(int w, int h, String label) throws IOException {
 
         BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
         Graphics2D g = img.createGraphics();
         g.setPaint(Color.LIGHT_GRAY);
         g.fillRect(0, 0, w, h);
         g.setPaint(Color.DARK_GRAY);
-        g.drawString("processing...", 10, h / 2);
+        g.drawString(label, 10, h / 2);
         g.dispose();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ImageIO.write(img, "jpg", baos);
@@ -115,22 +128,124 @@ public class ThumbnailService implements IThumbnailService {
 
     @Override
     public byte[] generateImageThumbnail(byte[] original, int targetW, int targetH) throws IOException {
+        return encoder().encode(downscale(decode(original), targetW, targetH));
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    // unsupported types are marked FAILED right away, anything else IN_PROGRESS
+    private PostAttachmentRepository.AttachmentMeta begin(Long attachmentId) {
+        PostAttachmentRepository.AttachmentMeta att = attachmentRepository.findMetaById(attachmentId)
+                .orElseThrow(() -> new CustomException(PostAttachmentError.AttachmentOrTheCorrespondingPostNotFound, attachmentId.toString()));
+
+        String contentType = att.getContentType();
+        boolean supported = contentType != null && (contentType.startsWith("image/") || contentType.startsWith("video/"));
+        attachmentRepository.updateThumbnailStatus(attachmentId, supported ? ThumbnailStatus.IN_PROGRESS : ThumbnailStatus.FAILED);
+        return att;
+    }
+
+    private byte[] readOriginal(PostAttachmentRepository.AttachmentMeta att) throws IOException {
+        if (att.getBlobKey() == null) return attachmentRepository.findDataById(att.getId());
+        try (InputStream in = blobStore.open(att.getBlobKey())) {
+            return in.readAllBytes();
+        }
+    }
+
+    /*
+     * Renditions are produced largest first and each one is scaled down from the previous, so the source is decoded
+     * once and no step shrinks by more than half at a time. The bytes go to the blob store here; the returned
+     * renditions are not persisted yet.
+     */
+    private List<ThumbnailRendition> render(Long attachmentId, BufferedImage src, long version) throws IOException {
+        IImageEncoder encoder = encoder();
+        List<Integer> widths = renditionWidths.stream().distinct().sorted(Comparator.reverseOrder()).toList();
+        List<ThumbnailRendition> rendered = new ArrayList<>(widths.size());
+        BufferedImage current = src;
+
+        for (int boxWidth : widths) {
+            current = downscale(current, boxWidth, boxWidth * THUMB_HEIGHT / THUMB_WIDTH);
+            byte[] bytes = encoder.encode(current);
+            rendered.add(ThumbnailRendition.builder()
+                    .attachmentId(attachmentId)
+                    .boxWidth(boxWidth)
+                    .width(current.getWidth())
+                    .height(current.getHeight())
+                    .contentType(encoder.contentType())
+                    .blobKey(blobStore.put(bytes))
+                    .size(bytes.length)
+                    .version(version)
+                    .build());
+        }
+        return rendered;
+    }
+
+    // upserts the rendition rows; the THUMB_WIDTH rendition doubles as the attachment's default thumbnail
+    private void storeRenditions(Long attachmentId, List<ThumbnailRendition> rendered, long version) {
+        Map<Integer, ThumbnailRendition> existing = new HashMap<>();
+        for (ThumbnailRendition r : renditionRepository.findByAttachmentIdOrderByBoxWidthAsc(attachmentId)) {
+            existing.put(r.getBoxWidth(), r);
+        }
 
-        ByteArrayInputStream in = new ByteArrayInputStream(original);
-        BufferedImage src = ImageIO.read(in);
+        ThumbnailRendition fallback = null;
+        for (ThumbnailRendition fresh : rendered) {
+            ThumbnailRendition r = existing.get(fresh.getBoxWidth());
+            if (r == null) {
+                r = fresh;
+            } else {
+                r.setWidth(fresh.getWidth());
+                r.setHeight(fresh.getHeight());
+                r.setContentType(fresh.getContentType());
+                r.setBlobKey(fresh.getBlobKey());
+                r.setSize(fresh.getSize());
+                r.setVersion(fresh.getVersion());
+            }
+            renditionRepository.save(r);
+
+            if (fallback == null || Math.abs(r.getBoxWidth() - THUMB_WIDTH) < Math.abs(fallback.getBoxWidth() - THUMB_WIDTH)) {
+                fallback = r;
+            }
+        }
+
+        attachmentRepository.storeThumbnail(attachmentId, ThumbnailStatus.DONE, version,
+                fallback == null ? null : fallback.getBlobKey(), fallback == null ? null : fallback.getSize());
+    }
+
+    private static BufferedImage decode(byte[] bytes) throws IOException {
+        BufferedImage src = ImageIO.read(new ByteArrayInputStream(bytes));
         if (src == null) throw new IOException("Cannot read image");
-        int w = src.getWidth();
-        int h = src.getHeight();
-        double scale = Math.min((double) targetW / w, (double) targetH / h);
-        int nw = Math.max(1, (int) (w * scale));
-        int nh = Math.max(1, (int) (h * scale));
-        BufferedImage dst = new BufferedImage(nw, nh, BufferedImage.TYPE_INT_RGB);
+        return src;
+    }
+
+    // fits the image into the box without upscaling, halving first while the remaining factor is above 2
+    private static BufferedImage downscale(BufferedImage src, int boxW, int boxH) {
+        double scale = Math.min(1.0, Math.min((double) boxW / src.getWidth(), (double) boxH / src.getHeight()));
+        int nw = Math.max(1, (int) (src.getWidth() * scale));
+        int nh = Math.max(1, (int) (src.getHeight() * scale));
+
+        BufferedImage current = src;
+        while (current.getWidth() / 2 >= nw && current.getHeight() / 2 >= nh) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != nw || current.getHeight() != nh || current.getType() != BufferedImage.TYPE_INT_RGB) {
+            current = resize(current, nw, nh);
+        }
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage src, int w, int h) {
+        BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
         Graphics2D g = dst.createGraphics();
         g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.drawImage(src, 0, 0, nw, nh, null);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(src, 0, 0, w, h, null);
         g.dispose();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(dst, "jpg", baos);
-        return baos.toByteArray();
+        return dst;
+    }
+
+    private IImageEncoder encoder() {
+        return encoders.stream()
+                .filter(e -> e.name().equalsIgnoreCase(encoderName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No image encoder named " + encoderName));
     }
 }
@@ -0,0 +1,147 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.iservice.ITokenRevocationService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation list for JWTs that are not backed by a Redis session.
+ * Redis holds the authoritative state: a sorted set of revoked jtis scored by their expiry and a hash of
+ * userId -> epoch second before which all of the user's tokens are void. Every node mirrors both locally, applies
+ * new revocations as they are broadcast and re-reads the full state periodically in case a broadcast was missed.
+ * The periodic read is merged into the local copy rather than replacing it, so a revocation applied locally while
+ * the read was in flight is never lost.
+ * Entries are dropped once the tokens they refer to have expired, so the set stays as small as the logouts of one
+ * token lifetime.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService implements ITokenRevocationService, MessageListener {
+
+    private static final String REVOKED_JTIS = "revoked-jti";
+    private static final String REVOKED_USERS = "revoked-users";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channel;
+    private final long tokenLifetimeMillis;
+
+    // jti -> expiry in epoch millis, so expired entries can be dropped locally
+    private final Map<String, Long> revokedJtis = new ConcurrentHashMap<>();
+    private final Map<Long, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    public TokenRevocationService(StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  @Value("${jwt.revocation.channel:token-revocation}") String channel,
+                                  @Value("${jwt.lifetime-ms:86400000}") long tokenLifetimeMillis) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.channel = channel;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    @Override
+    public void revokeToken(String jti, Date expiresAt) {
+        revokedJtis.merge(jti, expiresAt.getTime(), Math::max);
+        redisTemplate.opsForZSet().add(REVOKED_JTIS, jti, expiresAt.getTime());
+        publish("jti:" + jti + ":" + expiresAt.getTime());
+    }
+
+    @Override
+    public void revokeAllOf(Long userId) {
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        revokedBefore.merge(userId, nowSeconds, Math::max);
+        redisTemplate.opsForHash().put(REVOKED_USERS, userId.toString(), Long.toString(nowSeconds));
+        publish("user:" + userId + ":" + nowSeconds);
+    }
+
+    @Override
+    public boolean isRevoked(String jti, Long userId, Date issuedAt) {
+        if (jti != null && revokedJtis.containsKey(jti)) return true;
+        Long before = revokedBefore.get(userId);
+        // iat has second precision; a token issued in the revoking second itself (e.g. the replacement) stays valid
+        return before != null && issuedAt != null && issuedAt.getTime() / 1000 < before;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":", 3);
+        try {
+            if (parts[0].equals("jti") && parts.length == 3) {
+                revokedJtis.merge(parts[1], Long.parseLong(parts[2]), Math::max);
+            } else if (parts[0].equals("jti") && parts.length == 2) {
+                // sent by a node without the expiry in the message; the token cannot outlive a full lifetime
+                revokedJtis.merge(parts[1], System.currentTimeMillis() + tokenLifetimeMillis, Math::max);
+            } else if (parts[0].equals("user") && parts.length == 3) {
+                revokedBefore.merge(Long.parseLong(parts[1]), Long.parseLong(parts[2]), Math::max);
+            }
+        } catch (NumberFormatException ex) {
+            log.warn("Ignoring malformed token revocation message: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:10000}")
+    public void sync() {
+        try {
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().removeRangeByScore(REVOKED_JTIS, Double.NEGATIVE_INFINITY, now);
+            Set<ZSetOperations.TypedTuple<String>> jtis =
+                    redisTemplate.opsForZSet().rangeByScoreWithScores(REVOKED_JTIS, now, Double.POSITIVE_INFINITY);
+
+            long oldestLiveIat = (now - tokenLifetimeMillis) / 1000;
+            for (Map.Entry<Object, Object> e : redisTemplate.opsForHash().entries(REVOKED_USERS).entrySet()) {
+                long before = Long.parseLong((String) e.getValue());
+                if (before < oldestLiveIat) {
+                    // every token issued before this point has expired by now
+                    redisTemplate.opsForHash().delete(REVOKED_USERS, e.getKey());
+                } else {
+                    revokedBefore.merge(Long.parseLong((String) e.getKey()), before, Math::max);
+                }
+            }
+            if (jtis != null) {
+                for (ZSetOperations.TypedTuple<String> t : jtis) {
+                    if (t.getValue() != null && t.getScore() != null) {
+                        revokedJtis.merge(t.getValue(), t.getScore().longValue(), Math::max);
+                    }
+                }
+            }
+
+            // add first, then drop only what has expired; entries revoked meanwhile stay
+            revokedJtis.values().removeIf(expiresAt -> expiresAt < now);
+            revokedBefore.values().removeIf(before -> before < oldestLiveIat);
+        } catch (RuntimeException ex) {
+            // keep serving from the current copy; broadcasts still arrive
+            log.warn("Token revocation sync failed: {}", ex.getMessage());
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (RuntimeException ex) {
+            log.warn("Could not broadcast token revocation, other nodes pick it up on their next sync: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.CustomException;
+import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.DTO.UploadDTO;
+import ir.ac.kntu.backend.config.CacheConfig;
+import ir.ac.kntu.backend.config.UploadProperties;
+import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
+import ir.ac.kntu.backend.error.PostAttachmentError;
+import ir.ac.kntu.backend.error.PostErrorCode;
+import ir.ac.kntu.backend.error.UploadErrorCode;
+import ir.ac.kntu.backend.event.UserContentChangedEvent;
+import ir.ac.kntu.backend.iservice.IBeanMapper;
+import ir.ac.kntu.backend.iservice.IThumbnailJobService;
+import ir.ac.kntu.backend.iservice.IUploadService;
+import ir.ac.kntu.backend.model.Post;
+import ir.ac.kntu.backend.model.PostAttachment;
+import ir.ac.kntu.backend.model.ThumbnailStatus;
+import ir.ac.kntu.backend.model.UploadSession;
+import ir.ac.kntu.backend.repository.PostAttachmentRepository;
+import ir.ac.kntu.backend.repository.PostRepository;
+import ir.ac.kntu.backend.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Resumable uploads: create a session, PUT chunks at the current offset, then complete.
+ * Chunks are appended to a part file on local disk and fsynced before the offset advances, so an acknowledged chunk
+ * survives a crash; a failed or mismatching chunk is truncated away and the client resends from the same offset.
+ * Sessions live on the node that holds their part file (or a shared volume). Completion runs the same single-pass
+ * pipeline as multipart uploads and hands the attachment to the thumbnail job queue.
+ */
+@Slf4j
+@Service
+public class UploadService implements IUploadService {
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final int SWEEP_BATCH = 100;
+
+    private final UploadSessionRepository sessionRepository;
+    private final PostRepository postRepository;
+    private final PostAttachmentRepository attachmentRepository;
+    private final AttachmentUploadPipeline uploadPipeline;
+    private final IThumbnailJobService thumbnailJobService;
+    private final IBeanMapper mapper;
+    private final UploadProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final Path dir;
+
+    public UploadService(UploadSessionRepository sessionRepository,
+                         PostRepository postRepository,
+                         PostAttachmentRepository attachmentRepository,
+                         AttachmentUploadPipeline uploadPipeline,
+                         IThumbnailJobService thumbnailJobService,
+                         IBeanMapper mapper,
+                         UploadProperties properties,
+                         TransactionTemplate transactionTemplate,
+                         ApplicationEventPublisher eventPublisher,
+                         CacheManager cacheManager) throws IOException {
+        this.sessionRepository = sessionRepository;
+        this.postRepository = postRepository;
+        this.attachmentRepository = attachmentRepository;
+        this.uploadPipeline = uploadPipeline;
+        this.thumbnailJobService = thumbnailJobService;
+        this.mapper = mapper;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.dir = Paths.get(properties.getDir()).toAbsolutePath().normalize();
+        Files.createDirectories(dir);
+    }
+
+    @Override
+    @Transactional
+    public UploadDTO.SessionRs createSession(UploadDTO.SessionCreateRq rq) throws IOException {
+
+        Long userId = currentUserId();
+
+        Post post = postRepository.findById(rq.getPostId())
+                .orElseThrow(() -> new CustomException(PostErrorCode.PostNotFound, rq.getPostId().toString()));
+        if (!userId.equals(post.getAuthor().getId())) {
+            throw new CustomException(PostErrorCode.Unauthorized, "Only the Original Author can add Attachments");
+        }
+        if (rq.getSize() <= 0) {
+            throw new CustomException(UploadErrorCode.InvalidUploadSize, rq.getSize().toString());
+        }
+        if (rq.getSize() > properties.maxBytesFor(rq.getContentType())) {
+            throw new CustomException(PostAttachmentError.FileTooLarge, rq.getFilename());
+        }
+
+        Instant now = Instant.now();
+        UploadSession session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .ownerId(userId)
+                .postId(post.getId())
+                .filename(StringUtils.cleanPath(rq.getFilename()))
+                .declaredContentType(rq.getContentType())
+                .totalSize(rq.getSize())
+                .createdAt(now)
+                .expiresAt(now.plusMillis(properties.getSessionTtlMs()))
+                .build();
+
+        Files.createFile(partOf(session.getId()));
+        sessionRepository.saveAndFlush(session);
+        return toRs(session);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UploadDTO.SessionRs getSession(String sessionId) {
+        return toRs(findOwnSession(sessionId));
+    }
+
+    @Override
+    public UploadDTO.SessionRs appendChunk(String sessionId, long offset, String sha256Hex, InputStream body) throws IOException {
+
+        UploadSession session = findOwnSession(sessionId);
+        if (session.getAttachmentId() != null || offset != session.getReceivedBytes()) {
+            throw new CustomException(UploadErrorCode.OffsetMismatch, Long.toString(session.getReceivedBytes()));
+        }
+        long room = Math.min(properties.getChunkMaxBytes(), session.getTotalSize() - offset);
+
+        long written;
+        try (FileChannel channel = FileChannel.open(partOf(sessionId), StandardOpenOption.WRITE);
+             FileLock lock = tryLock(channel)) {
+
+            if (lock == null) {
+                throw new CustomException(UploadErrorCode.UploadInProgress, sessionId);
+            }
+            // drop whatever a previously interrupted chunk left past the acknowledged offset
+            channel.truncate(offset);
+            channel.position(offset);
+
+            try {
+                MessageDigest digest = sha256();
+                written = copy(body, channel, digest, room);
+                if (sha256Hex == null || !HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(sha256Hex.trim())) {
+                    throw new CustomException(UploadErrorCode.ChecksumMismatch, sessionId);
+                }
+                channel.force(false);
+            } catch (RuntimeException | IOException ex) {
+                channel.truncate(offset);
+                throw ex;
+            }
+
+            Instant expiresAt = Instant.now().plusMillis(properties.getSessionTtlMs());
+            if (transactionTemplate.execute(status -> sessionRepository.advance(sessionId, offset, offset + written, expiresAt)) == 0) {
+                channel.truncate(offset);
+                throw new CustomException(UploadErrorCode.OffsetMismatch, sessionId);
+            }
+            session.setReceivedBytes(offset + written);
+            session.setExpiresAt(expiresAt);
+        }
+        return toRs(session);
+    }
+
+    @Override
+    public PostDTO.AttachmentDTO complete(String sessionId) throws IOException {
+
+        UploadSession session = findOwnSession(sessionId);
+        if (session.getAttachmentId() != null) {
+            return existingAttachment(session);
+        }
+        if (session.getReceivedBytes() != session.getTotalSize()) {
+            throw new CustomException(UploadErrorCode.UploadIncomplete, Long.toString(session.getReceivedBytes()));
+        }
+
+        Path part = partOf(sessionId);
+        AttachmentUploadPipeline.StoredUpload upload;
+        try (InputStream in = Files.newInputStream(part)) {
+            upload = uploadPipeline.store(in, session.getFilename());
+        }
+
+        PostDTO.AttachmentDTO dto = transactionTemplate.execute(status -> attach(session, upload, status));
+        if (dto == null) {
+            // a concurrent complete claimed the session first; blobs are content-addressed, so nothing is left behind
+            return existingAttachment(findOwnSession(sessionId));
+        }
+        Files.deleteIfExists(part);
+        return dto;
+    }
+
+    @Override
+    public void abort(String sessionId) throws IOException {
+        UploadSession session = findOwnSession(sessionId);
+        sessionRepository.deleteById(session.getId());
+        Files.deleteIfExists(partOf(sessionId));
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.sweep-interval-ms:600000}")
+    public void sweepExpired() {
+        List<String> expired;
+        int removed = 0;
+        int removedInBatch;
+        do {
+            expired = sessionRepository.findExpiredIds(Instant.now(), PageRequest.of(0, SWEEP_BATCH));
+            removedInBatch = 0;
+            for (String id : expired) {
+                try {
+                    sessionRepository.deleteById(id);
+                    Files.deleteIfExists(partOf(id));
+                    removedInBatch++;
+                } catch (Exception ex) {
+                    log.warn("Could not remove expired upload session {}: {}", id, ex.getMessage());
+                }
+            }
+            removed += removedInBatch;
+        } while (expired.size() == SWEEP_BATCH && removedInBatch > 0);
+
+        if (removed > 0) {
+            log.info("Removed {} abandoned upload sessions", removed);
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    // null (and rolled back) when the session was already claimed by another complete
+    private PostDTO.AttachmentDTO attach(UploadSession session, AttachmentUploadPipeline.StoredUpload upload,
+                                         TransactionStatus status) {
+
+        Post post = postRepository.findById(session.getPostId())
+                .orElseThrow(() -> new CustomException(PostErrorCode.PostNotFound, session.getPostId().toString()));
+
+        // persisted directly so this instance gets the generated id
+        PostAttachment att = attachmentRepository.saveAndFlush(PostAttachment.builder()
+                .filename(UUID.randomUUID().toString().substring(0, 8) + "_" + session.getFilename())
+                .contentType(upload.contentType())
+                .size(upload.size())
+                .blobKey(upload.blobKey())
+                .post(post)
+                .thumbnailStatus(ThumbnailStatus.PENDING)
+                .thumbnailVersion(0L)
+                .build());
+        if (sessionRepository.claim(session.getId(), att.getId()) != 1) {
+            status.setRollbackOnly();
+            return null;
+        }
+
+        String type = att.getContentType();
+        if (type != null && (type.startsWith("image/") || type.startsWith("video/"))) {
+            thumbnailJobService.enqueue(att.getId());
+        }
+
+        eventPublisher.publishEvent(new UserContentChangedEvent(session.getOwnerId()));
+        Cache posts = cacheManager.getCache(CacheConfig.POSTS);
+        if (posts != null) posts.evict(post.getId());
+
+        return mapper.toAttachmentDTO(att);
+    }
+
+    private PostDTO.AttachmentDTO existingAttachment(UploadSession session) {
+        return attachmentRepository.findById(session.getAttachmentId())
+                .map(mapper::toAttachmentDTO)
+                .orElseThrow(() -> new CustomException(UploadErrorCode.UploadSessionNotFound, session.getId()));
+    }
+
+    // null while another writer holds the part file: tryLock returns null for another process but throws when
+    // the lock is held by another thread of this JVM
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            return null;
+        }
+    }
+
+    // at most max bytes are accepted; a longer body is rejected rather than cut off
+    private static long copy(InputStream in, FileChannel channel, MessageDigest digest, long max) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+            if (total > max) {
+                throw new CustomException(UploadErrorCode.ChunkTooLarge, Long.toString(max));
+            }
+            digest.update(buffer, 0, n);
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+            while (bb.hasRemaining()) channel.write(bb);
+        }
+        return total;
+    }
+
+    private UploadSession findOwnSession(String sessionId) {
+        Long userId = currentUserId();
+        UploadSession session = sessionRepository.findByIdAndOwnerId(sessionId, userId)
+                .orElseThrow(() -> new CustomException(UploadErrorCode.UploadSessionNotFound, sessionId));
+        if (session.getExpiresAt().isBefore(Instant.now())) {
+            throw new CustomException(UploadErrorCode.UploadSessionNotFound, sessionId);
+        }
+        return session;
+    }
+
+    private Path partOf(String sessionId) {
+        // ids are server-generated UUIDs; parsing rejects anything that could escape the directory
+        return dir.resolve(UUID.fromString(sessionId) + ".part");
+    }
+
+    private static UploadDTO.SessionRs toRs(UploadSession session) {
+        return new UploadDTO.SessionRs(session.getId(), session.getPostId(), session.getReceivedBytes(),
+                session.getTotalSize(), session.getExpiresAt());
+    }
+
+    private static Long currentUserId() {
+        return ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
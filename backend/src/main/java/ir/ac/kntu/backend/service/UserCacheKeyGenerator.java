@@ -0,0 +1,91 @@
+package ir.ac.kntu.backend.service;
+
+import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
+import ir.ac.kntu.backend.event.UserContentChangedEvent;
+import lombok.RequiredArgsConstructor;
+import ir.ac.kntu.backend.config.CacheConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.reflect.Method;
+
+/**
+ * Keys for the per-user caches: user id, the user's cache generation and every Pageable argument (page, size, sort).
+ * A profile is cached under many page combinations, which a single @CacheEvict cannot reach, so invalidation bumps
+ * the generation instead; entries of older generations are never read again and expire with their TTL.
+ * The first Long argument is taken as the user id, otherwise the caller's own id is used (profile).
+ * The generation itself is cached (USER_GENERATIONS) so a local hit costs no Redis round trip; bumping it evicts that
+ * entry, which also clears it on the other nodes.
+ * The minimal view has a single entry per user and is evicted directly, which also clears it on the other nodes.
+ */
+@Slf4j
+@Service("userCacheKeyGenerator")
+@RequiredArgsConstructor
+public class UserCacheKeyGenerator implements KeyGenerator {
+
+    private static final String GENERATION_PREFIX = "user-cache-gen:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheManager cacheManager;
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        Long userId = (params.length > 0 && params[0] instanceof Long id) ? id : currentUserId();
+
+        StringBuilder key = new StringBuilder().append(userId).append(":g").append(generation(userId));
+        for (Object param : params) {
+            if (param instanceof Pageable pageable) {
+                key.append(':').append(pageKey(pageable));
+            } else if (param == null) {
+                key.append(":-");
+            }
+        }
+        return key.toString();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserContentChanged(UserContentChangedEvent event) {
+        try {
+            redisTemplate.opsForValue().increment(GENERATION_PREFIX + event.userId());
+            // evictIfPresent is applied immediately; a plain evict would wait for a commit that has already happened
+            Cache generations = cacheManager.getCache(CacheConfig.USER_GENERATIONS);
+            if (generations != null) generations.evictIfPresent(event.userId());
+            Cache minimal = cacheManager.getCache(CacheConfig.USER_MINIMAL);
+            if (minimal != null) minimal.evictIfPresent(event.userId());
+        } catch (RuntimeException ex) {
+            // the stale entries still expire with their TTL
+            log.warn("Could not invalidate cached views of user {}: {}", event.userId(), ex.getMessage());
+        }
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private String generation(Long userId) {
+        Cache generations = cacheManager.getCache(CacheConfig.USER_GENERATIONS);
+        if (generations == null) return currentGeneration(userId);
+        return generations.get(userId, () -> currentGeneration(userId));
+    }
+
+    private String currentGeneration(Long userId) {
+        String gen = redisTemplate.opsForValue().get(GENERATION_PREFIX + userId);
+        return gen == null ? "0" : gen;
+    }
+
+    private static String pageKey(Pageable pageable) {
+        if (pageable.isUnpaged()) return "u";
+        String key = pageable.getPageNumber() + "x" + pageable.getPageSize();
+        return pageable.getSort().isSorted() ? key + "," + pageable.getSort().toString().replace(" ", "") : key;
+    }
+
+    private static Long currentUserId() {
+        return ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
+    }
+}
@@ -2,7 +2,9 @@ package ir.ac.kntu.backend.service;
 
 import ir.ac.kntu.backend.CustomException;
 import ir.ac.kntu.backend.DTO.*;
+import ir.ac.kntu.backend.config.CacheConfig;
 import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
+import ir.ac.kntu.backend.event.UserContentChangedEvent;
 import ir.ac.kntu.backend.error.UserErrorCode;
 import ir.ac.kntu.backend.iservice.*;
 import ir.ac.kntu.backend.model.Preferences;
@@ -14,6 +16,9 @@ import ir.ac.kntu.backend.search.SearchUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -24,12 +29,12 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.SecureRandom;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
-//TODO: make get services cacheable by redis and evict by update & delete
 //TODO: add preferences services for modification of values
 
 @Service
@@ -49,6 +54,8 @@ public class UserService implements IUserService {
     private final PasswordEncoder passwordEncoder;
     private final IBeanMapper beanMapper;
     private final RedisOTPRepository redisOTPRepository;
+    private final IBlobStore blobStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final Pageable DEFAULT_POSTS_PAGEABLE = PageRequest.of(0, 10);
     private static final Pageable DEFAULT_COMMUNITIES_PAGEABLE = PageRequest.of(0, 10);
@@ -160,7 +167,7 @@ public class UserService implements IUserService {
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "users",key = "T(org.springframework.security.core.context.SecurityContextHolder).context.authentication.principal")
+    @Cacheable(cacheNames = CacheConfig.USER_PROFILES, keyGenerator = "userCacheKeyGenerator")
     @Override
     public UserDTO.UserProfileRs profile(Pageable postsPageable, Pageable communitiesPageable, Pageable commentsPageable, Pageable notificationsPageable) {
         Long actingUserId = ((SecurityAuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUserId();
@@ -192,6 +199,7 @@ public class UserService implements IUserService {
 
         beanMapper.updateUser(user, userUpdate);
         User saved =  userRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(new UserContentChangedEvent(id));
 
         return beanMapper.toUserUpdate(saved);
     }
@@ -200,6 +208,7 @@ public class UserService implements IUserService {
     @Override
     public void delete(Long id) {
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserContentChangedEvent(id));
     }
 
     @Transactional
@@ -207,6 +216,7 @@ public class UserService implements IUserService {
     public UserDTO.UserStatus disableUser(Long userId) {
         User user = userRepository.findById(userId).orElseThrow(() -> new CustomException(UserErrorCode.UserNotFound));
         user.setEnabled(false);
+        securityService.revokeAllTokens(userId);
         return beanMapper.toUserStatus(user);
     }
 
@@ -234,8 +244,13 @@ public class UserService implements IUserService {
         user.setPassword(passwordEncoder.encode(changePassRq.getNewPassword()));
 
         userRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(new UserContentChangedEvent(userId));
 
-        return beanMapper.toUserCreateRs(user);
+        // sign out every other session and hand the caller a replacement token
+        securityService.revokeAllTokens(userId);
+        UserDTO.UserCreateRs rs = beanMapper.toUserCreateRs(user);
+        rs.setToken(securityService.createToken(userId, "ROLE_User"));
+        return rs;
     }
 
     //needs one to one controller
@@ -249,14 +264,20 @@ public class UserService implements IUserService {
         String raw = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
         String unique = UUID.randomUUID().toString().substring(0,8) + "_" + raw;
 
+        String blobKey;
+        try (InputStream in = file.getInputStream()) {
+            blobKey = blobStore.put(in);
+        }
+
         ProfilePhoto photo = ProfilePhoto.builder()
                 .filename(unique)
-                .data(file.getBytes())
+                .blobKey(blobKey)
                 .size(file.getSize())
                 .build();
 
         user.setProfilePhoto(photo);
         userRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(new UserContentChangedEvent(id));
 
         return new ProfilePhotoDTO(
                 photo.getId(),
@@ -273,6 +294,7 @@ public class UserService implements IUserService {
                 .orElseThrow(() -> new CustomException(UserErrorCode.UserNotFound, id.toString()));
 
         profilePhotoRepository.deleteById(user.getProfilePhoto().getId());
+        eventPublisher.publishEvent(new UserContentChangedEvent(id));
     }
 
     @Transactional(readOnly = true)
@@ -304,6 +326,7 @@ public class UserService implements IUserService {
         Preferences preferences = user.getPreferences();
         beanMapper.updatePreferences(preferences, preferencesDto);
         userRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(new UserContentChangedEvent(userId));
 
         return beanMapper.toPreferencesDTO(preferences);
     }
@@ -319,6 +342,7 @@ public class UserService implements IUserService {
         user.setPreferences(defaults);
 
         userRepository.saveAndFlush(user);
+        eventPublisher.publishEvent(new UserContentChangedEvent(userId));
 
         return beanMapper.toPreferencesDTO(defaults);
     }
@@ -344,6 +368,7 @@ public class UserService implements IUserService {
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.USER_VIEWS, keyGenerator = "userCacheKeyGenerator")
     @Override
     public UserDTO.UserViewDTO getUserView(Long id, Pageable postsPageable, Pageable communitiesPageable, Pageable commentsPageable) {
 
@@ -368,6 +393,7 @@ public class UserService implements IUserService {
     }
 
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.USER_MINIMAL, key = "#id")
     @Override
     public UserDTO.MinimalView getMinimalView(Long id) {
         User user = userRepository.findById(id).orElseThrow(() -> new CustomException(UserErrorCode.UserNotFound, id.toString()));
@@ -384,4 +410,22 @@ public class UserService implements IUserService {
 
         return user.getProfilePhoto();
     }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Resource downloadProfilePhoto(Long id) {
+
+        ProfilePhoto photo = getProfilePhoto(id);
+        if (photo == null) {
+            throw new CustomException(UserErrorCode.ProfilePhotoNotFound, id.toString());
+        }
+        if (photo.getBlobKey() != null) {
+            return blobStore.asResource(photo.getBlobKey());
+        }
+        // not migrated to the blob store yet
+        if (photo.getData() == null) {
+            throw new CustomException(UserErrorCode.ProfilePhotoNotFound, id.toString());
+        }
+        return new ByteArrayResource(photo.getData());
+    }
 }
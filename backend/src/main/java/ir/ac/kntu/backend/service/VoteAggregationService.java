@@ -0,0 +1,228 @@
+package ir.ac.kntu.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ir.ac.kntu.backend.config.CacheConfig;
+import ir.ac.kntu.backend.event.PostActivityEvent;
+import ir.ac.kntu.backend.iservice.IVoteAggregationService;
+import ir.ac.kntu.backend.model.VotableType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind aggregation of vote deltas.
+ * The per-user Vote row is written by VotingService in its own transaction; the upvote and downvote deltas are
+ * folded into a counter per (type, id) and written back in batched relative updates, so a hot post never takes
+ * a row lock or an optimistic-lock conflict per vote. Comments also get their tallies and ranking scores
+ * refreshed in the same statement.
+ */
+@Slf4j
+@Service
+public class VoteAggregationService implements IVoteAggregationService, SmartLifecycle {
+
+    private static final String UPDATE_POST_VOTES = "UPDATE posts SET n_votes = n_votes + ? WHERE id = ?";
+
+    // MySQL applies single-table assignments left to right, so the scores see the tallies already updated;
+    // tallies still null (not reconciled yet) stay null and are filled in from the votes table later
+    private static final String UPDATE_COMMENT_VOTES = "UPDATE comments SET n_votes = n_votes + ?, " +
+            "n_upvotes = n_upvotes + ?, n_downvotes = n_downvotes + ?, " +
+            CommentScores.assignments("n_upvotes", "n_downvotes") + " WHERE id = ?";
+
+    // stop after the web server graceful shutdown (phase MAX_VALUE - 1024) so in-flight votes get drained too
+    private static final int PHASE = Integer.MAX_VALUE - 2048;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final int batchSize;
+
+    // CHM bins act as the lock stripes; merge() is atomic per key and drops the entry when both sums reach 0
+    private final ConcurrentHashMap<VoteKey, Tally> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong lastFlushMillis = new AtomicLong(System.currentTimeMillis());
+
+    private final Timer flushTimer;
+    private final Counter flushFailures;
+
+    private volatile boolean running = false;
+
+    public VoteAggregationService(JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  CacheManager cacheManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${votes.flush-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.batchSize = batchSize;
+
+        Gauge.builder("seddit.votes.pending.targets", pending, Map::size)
+                .description("targets with an unflushed vote delta")
+                .register(meterRegistry);
+        Gauge.builder("seddit.votes.pending.deltas", pending, m -> m.values().stream().mapToLong(t -> Math.abs(t.up()) + Math.abs(t.down())).sum())
+                .description("absolute sum of unflushed vote deltas")
+                .register(meterRegistry);
+        Gauge.builder("seddit.votes.flush.lag", this, s -> s.pending.isEmpty() ? 0 : System.currentTimeMillis() - s.lastFlushMillis.get())
+                .description("milliseconds since the last successful flush while deltas are pending")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("seddit.votes.flush").register(meterRegistry);
+        this.flushFailures = Counter.builder("seddit.votes.flush.failures").register(meterRegistry);
+    }
+
+    @Override
+    public void record(VotableType type, Long targetId, long upDelta, long downDelta) {
+        if (upDelta == 0 && downDelta == 0) return;
+        pending.merge(new VoteKey(type, targetId), new Tally(upDelta, downDelta), VoteAggregationService::sumOrRemove);
+    }
+
+    @Override
+    public long pendingDelta(VotableType type, Long targetId) {
+        Tally tally = pending.get(new VoteKey(type, targetId));
+        return tally == null ? 0L : tally.net();
+    }
+
+    @Scheduled(fixedDelayString = "${votes.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (!pending.isEmpty()) {
+            flush();
+        }
+    }
+
+    @Override
+    public int flush() {
+        flushLock.lock();
+        try {
+            // detach the current deltas; votes arriving meanwhile start new entries for the next round
+            List<Object[]> postArgs = new ArrayList<>();
+            List<Object[]> commentArgs = new ArrayList<>();
+            List<VoteKey> keys = new ArrayList<>(pending.keySet());
+
+            for (VoteKey key : keys) {
+                Tally tally = pending.remove(key);
+                if (tally == null) continue;
+                if (key.type() == VotableType.POST) postArgs.add(new Object[]{tally.net(), key.targetId(), tally});
+                else commentArgs.add(new Object[]{tally.net(), tally.up(), tally.down(), key.targetId(), tally});
+            }
+
+            if (postArgs.isEmpty() && commentArgs.isEmpty()) return 0;
+
+            try {
+                flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                    writeBatches(UPDATE_POST_VOTES, postArgs);
+                    writeBatches(UPDATE_COMMENT_VOTES, commentArgs);
+                }));
+                lastFlushMillis.set(System.currentTimeMillis());
+                if (!postArgs.isEmpty()) {
+                    List<Long> postIds = postArgs.stream().map(a -> (Long) a[1]).toList();
+                    evictCachedPosts(postIds);
+                    eventPublisher.publishEvent(new PostActivityEvent(postIds));
+                }
+                return postArgs.size() + commentArgs.size();
+            } catch (RuntimeException ex) {
+                // put the deltas back so they are retried on the next round instead of being lost
+                flushFailures.increment();
+                restore(VotableType.POST, postArgs);
+                restore(VotableType.COMMENT, commentArgs);
+                log.error("Vote flush failed, {} deltas re-queued: {}", postArgs.size() + commentArgs.size(), ex.getMessage());
+                return 0;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // ------------------------------------- LIFECYCLE ------------------------------------------------------------------
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        int flushed = flush();
+        if (!pending.isEmpty()) {
+            log.warn("Shutting down with {} unflushed vote deltas", pending.size());
+        } else {
+            log.info("Drained {} vote deltas on shutdown", flushed);
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    // cached posts carry the n_votes from before the flush; a failed eviction only leaves them until their TTL
+    private void evictCachedPosts(List<Long> postIds) {
+        Cache posts = cacheManager.getCache(CacheConfig.POSTS);
+        if (posts == null) return;
+        try {
+            postIds.forEach(posts::evict);
+        } catch (RuntimeException ex) {
+            log.warn("Could not evict {} cached posts after a vote flush: {}", postIds.size(), ex.getMessage());
+        }
+    }
+
+    // the last element of each args array is the Tally it was built from, kept for restore() and not bound
+    private void writeBatches(String sql, List<Object[]> args) {
+        for (int from = 0; from < args.size(); from += batchSize) {
+            List<Object[]> batch = new ArrayList<>();
+            for (Object[] a : args.subList(from, Math.min(from + batchSize, args.size()))) {
+                batch.add(Arrays.copyOf(a, a.length - 1));
+            }
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+
+    private void restore(VotableType type, List<Object[]> args) {
+        for (Object[] a : args) {
+            Tally tally = (Tally) a[a.length - 1];
+            record(type, (Long) a[a.length - 2], tally.up(), tally.down());
+        }
+    }
+
+    private static Tally sumOrRemove(Tally a, Tally b) {
+        Tally sum = new Tally(a.up() + b.up(), a.down() + b.down());
+        return sum.up() == 0 && sum.down() == 0 ? null : sum;
+    }
+
+    private record VoteKey(VotableType type, Long targetId) {
+    }
+
+    private record Tally(long up, long down) {
+        long net() {
+            return up - down;
+        }
+    }
+}
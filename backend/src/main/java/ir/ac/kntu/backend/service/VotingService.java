@@ -6,6 +6,8 @@ import ir.ac.kntu.backend.config.security.SecurityAuthenticationToken;
 import ir.ac.kntu.backend.error.CommentErrorCode;
 import ir.ac.kntu.backend.error.PostErrorCode;
 import ir.ac.kntu.backend.error.VoteErrorCode;
+import ir.ac.kntu.backend.iservice.IMyVoteService;
+import ir.ac.kntu.backend.iservice.IVoteAggregationService;
 import ir.ac.kntu.backend.iservice.IVotingService;
 import ir.ac.kntu.backend.model.*;
 import ir.ac.kntu.backend.repository.CommentRepository;
@@ -16,6 +18,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Optional;
 
@@ -27,11 +31,15 @@ public class VotingService implements IVotingService {
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final IVoteAggregationService voteAggregationService;
+    private final IMyVoteService myVoteService;
 
     /**
      * Generic vote entry point. Use VotableType.POST or VotableType.COMMENT.
      * value: +1 upvote, -1 downvote, 0 remove vote
      * Returns new aggregate votes for the target.
+     * The aggregate itself is not written here: the delta is handed to the vote aggregator once the
+     * Vote row has committed and reaches n_votes with its next batched flush.
      */
     @Transactional
     @Override
@@ -51,6 +59,7 @@ public class VotingService implements IVotingService {
 
         Optional<Vote> existingOpt = voteRepository.findByVotableTypeAndVotableIdAndUser_Id(voteDTO.getType(), targetId, actingUserId);
         int delta = 0;
+        int previous = existingOpt.map(Vote::getValue).orElse(0);
 
         if (existingOpt.isPresent()) {
             Vote existing = existingOpt.get();
@@ -81,19 +90,33 @@ public class VotingService implements IVotingService {
         }
 
         if (delta != 0) {
-            // update to aggregate votes on the target
-            target.setVotes(target.getVotes() + delta);
-
-            if (type == VotableType.COMMENT) {
-                commentRepository.saveAndFlush((Comment) target);
-            } else if (type == VotableType.POST) {
-                postRepository.saveAndFlush((Post) target);
-            } else {
-                throw new IllegalStateException("Unsupported votable type: " + type);
-            }
+            // the net delta split into the upvote and downvote tallies it moves
+            recordAfterCommit(actingUserId, type, targetId, value, tally(value) - tally(previous), tally(-value) - tally(-previous));
         }
 
-        return target.getVotes();
+        return target.getVotes() + voteAggregationService.pendingDelta(type, targetId) + delta;
+    }
+
+    private void recordAfterCommit(Long userId, VotableType type, Long targetId, int value, int upDelta, int downDelta) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            voteAggregationService.record(type, targetId, upDelta, downDelta);
+            myVoteService.remember(userId, type, targetId, value);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                voteAggregationService.record(type, targetId, upDelta, downDelta);
+                myVoteService.remember(userId, type, targetId, value);
+            }
+        });
+    }
+
+    // 1 when the vote value counts as an upvote, so tally(-value) tells a downvote
+    private static int tally(int value) {
+        return value == 1 ? 1 : 0;
     }
 
     private Votable loadVotable(VotableType type, Long id) {
@@ -0,0 +1,86 @@
+package ir.ac.kntu.backend.config.security;
+
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The base64 body is decoded while it is read: the output matches the original and the bytes allocated while
+ * reading stay far below the body size, i.e. the body is never buffered as a whole.
+ */
+class Base64BodyRequestWrapperTest {
+
+    private static final int BODY_BYTES = 8 * 1024 * 1024;
+
+    @Test
+    void decodesALargeBodyAndFinishesAtEof() throws Exception {
+        byte[] original = randomBytes(BODY_BYTES);
+        ServletInputStream in = wrap(Base64.getMimeEncoder().encode(original)).getInputStream();
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        long total = 0;
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            assertThat(in.isFinished()).isFalse();
+            digest.update(buf, 0, n);
+            total += n;
+        }
+
+        assertThat(total).isEqualTo(BODY_BYTES);
+        assertThat(digest.digest()).isEqualTo(MessageDigest.getInstance("SHA-256").digest(original));
+        assertThat(in.isFinished()).isTrue();
+    }
+
+    @Test
+    void readingDoesNotBufferTheBody() throws Exception {
+        byte[] encoded = Base64.getMimeEncoder().encode(randomBytes(BODY_BYTES));
+        SecurityTokenFilter.Base64BodyRequestWrapper request = wrap(encoded);
+        byte[] buf = new byte[8192];
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        try (ServletInputStream in = request.getInputStream()) {
+            int n;
+            while ((n = in.read(buf)) != -1) digest.update(buf, 0, n);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertThat(allocated).isLessThan(BODY_BYTES / 8);
+    }
+
+    @Test
+    void readerDecodesText() throws IOException {
+        String json = "{\"title\":\"hello\"}";
+        SecurityTokenFilter.Base64BodyRequestWrapper request =
+                wrap(Base64.getEncoder().encode(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(request.getReader().readLine()).isEqualTo(json);
+        assertThat(request.getContentLengthLong()).isEqualTo(-1L);
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private static SecurityTokenFilter.Base64BodyRequestWrapper wrap(byte[] encoded) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/posts");
+        request.addHeader("X-Body-Format", "base64");
+        request.setContent(encoded);
+        return new SecurityTokenFilter.Base64BodyRequestWrapper(request);
+    }
+
+    private static byte[] randomBytes(int n) {
+        byte[] bytes = new byte[n];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
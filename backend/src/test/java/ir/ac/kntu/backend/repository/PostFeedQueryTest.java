@@ -0,0 +1,104 @@
+package ir.ac.kntu.backend.repository;
+
+import ir.ac.kntu.backend.DTO.PostDTO;
+import ir.ac.kntu.backend.config.JPAConfig;
+import ir.ac.kntu.backend.iservice.IBeanMapper;
+import ir.ac.kntu.backend.iservice.IBeanMapperImpl;
+import ir.ac.kntu.backend.model.Community;
+import ir.ac.kntu.backend.model.CommunityImage;
+import ir.ac.kntu.backend.model.Post;
+import ir.ac.kntu.backend.model.ProfilePhoto;
+import ir.ac.kntu.backend.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A feed page is one query for the posts with their authors and communities plus one grouped query per kind of
+ * image, whatever the page size, and never loads the image entities (whose legacy LOB would come along).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.auto_quote_keyword=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"
+})
+@Import({JPAConfig.class, IBeanMapperImpl.class})
+class PostFeedQueryTest {
+
+    private static final int POSTS = 12;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private ProfilePhotoRepository profilePhotoRepository;
+
+    @Autowired
+    private CommunityImageRepository communityImageRepository;
+
+    @Autowired
+    private IBeanMapper mapper;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < POSTS; i++) {
+            User author = em.persist(User.builder()
+                    .username("user" + i).password("x").name("n").family("f").email("user" + i + "@example.com")
+                    .profilePhoto(ProfilePhoto.builder().filename("p.jpg").size(3L).data(new byte[]{1, 2, 3}).build())
+                    .build());
+            Community community = em.persist(Community.builder()
+                    .name("community" + i)
+                    .avatarImage(CommunityImage.builder().filename("a.jpg").size(4L).data(new byte[]{1, 2, 3, 4}).build())
+                    .build());
+            em.persist(Post.builder().title("t" + i).content("c").author(author).community(community).build());
+        }
+        em.flush();
+        em.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void feedPageRunsAConstantNumberOfStatementsAndLoadsNoImages() {
+        List<PostDTO> page = postRepository.findFeedFirst(PageRequest.of(0, POSTS)).stream()
+                .map(mapper::toFeedPostDTO)
+                .toList();
+
+        Set<Long> authorIds = page.stream().map(p -> p.getAuthor().getId()).collect(Collectors.toSet());
+        Set<Long> communityIds = page.stream().map(p -> p.getCommunity().getId()).collect(Collectors.toSet());
+        List<ProfilePhotoRepository.ImageMeta> photos = profilePhotoRepository.findMetaByUserIdIn(authorIds);
+        List<CommunityImageRepository.ImageMeta> avatars = communityImageRepository.findAvatarMetaByCommunityIdIn(communityIds);
+
+        assertThat(page).hasSize(POSTS);
+        assertThat(page).allSatisfy(p -> assertThat(p.getAuthor().getUsername()).isNotNull());
+        assertThat(photos).hasSize(POSTS).allSatisfy(m -> assertThat(m.getSize()).isEqualTo(3L));
+        assertThat(avatars).hasSize(POSTS).allSatisfy(m -> assertThat(m.getSize()).isEqualTo(4L));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityStatistics(ProfilePhoto.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityStatistics(CommunityImage.class.getName()).getLoadCount()).isZero();
+    }
+}
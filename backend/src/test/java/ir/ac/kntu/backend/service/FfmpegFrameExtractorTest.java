@@ -0,0 +1,106 @@
+package ir.ac.kntu.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the extractor against shell scripts standing in for ffmpeg, so no real ffmpeg is needed.
+ */
+class FfmpegFrameExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    private FfmpegFrameExtractor extractor;
+
+    @AfterEach
+    void tearDown() {
+        if (extractor != null) extractor.shutdown();
+    }
+
+    @Test
+    void returnsWhatTheProcessWritesToStdout() throws IOException {
+        extractor = extractor(stub("printf frame"), 5_000, 1024);
+
+        assertThat(extractor.extractFrame(video())).isEqualTo("frame".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void killsTheProcessTreeOnTimeout() throws Exception {
+        Path pidFile = dir.resolve("child.pid");
+        extractor = extractor(stub("sleep 30 & echo $! > '" + pidFile + "'\nsleep 30"), 500, 1024);
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> extractor.extractFrame(video()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("timed out");
+        assertThat(System.nanoTime() - started).isLessThan(10_000_000_000L);
+
+        long childPid = Long.parseLong(Files.readString(pidFile).trim());
+        assertThat(awaitExit(childPid)).as("background child of the stub").isTrue();
+    }
+
+    @Test
+    void rejectsOutputAboveTheCap() {
+        extractor = extractor(stub("head -c 1000000 /dev/zero"), 5_000, 64 * 1024);
+
+        assertThatThrownBy(() -> extractor.extractFrame(video()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("exceeds");
+    }
+
+    @Test
+    void reportsStderrOfAFailedRun() {
+        extractor = extractor(stub("echo 'no such stream' >&2\nexit 3"), 5_000, 1024);
+
+        assertThatThrownBy(() -> extractor.extractFrame(video()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("exited with 3")
+                .hasMessageContaining("no such stream");
+    }
+
+    // ------------------------------------- HELPER METHODS -------------------------------------------------------------
+
+    private static FfmpegFrameExtractor extractor(Path binary, long timeoutMillis, int maxOutputBytes) {
+        return new FfmpegFrameExtractor(binary.toString(), timeoutMillis, 1, 1_000, maxOutputBytes);
+    }
+
+    private Path stub(String body) {
+        try {
+            Path script = dir.resolve("ffmpeg-stub-" + System.nanoTime() + ".sh");
+            Files.writeString(script, "#!/bin/sh\n" + body + "\n");
+            assertThat(script.toFile().setExecutable(true)).isTrue();
+            return script;
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Resource video() throws IOException {
+        Path video = dir.resolve("video.mp4");
+        if (!Files.exists(video)) Files.write(video, new byte[]{0, 0, 0, 0});
+        return new FileSystemResource(video);
+    }
+
+    // destroyForcibly only sends the signal, so give the kernel a moment to reap the child
+    private static boolean awaitExit(long pid) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            Optional<ProcessHandle> handle = ProcessHandle.of(pid);
+            if (handle.isEmpty() || !handle.get().isAlive()) return true;
+            Thread.sleep(100);
+        }
+        return false;
+    }
+}